@@ -0,0 +1,219 @@
+package com.crystalpowers.plugin.abilities;
+
+import com.crystalpowers.plugin.models.CrystalPower;
+import com.crystalpowers.plugin.models.PlayerData;
+import com.crystalpowers.plugin.models.PlayerPowerState;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of finding a player's abilities for a move or damage event: the chains of
+ * getId().equals(...) checks PlayerListener used to run against {@link AbilitySet#fire}.
+ * Handler bodies are replaced by the same token of work on both sides, so only the
+ * dispatch is measured. The legacy methods follow the old listener's checks in order,
+ * including its two map lookups per event.
+ * <p>
+ * Run with: mvn -Pbenchmarks test-compile exec:exec -Dbenchmark=AbilityDispatch
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class AbilityDispatchBenchmark {
+    private static final String[] POWER_IDS = {"human", "avian", "enderian", "arachnid", "merling", "elytrian", "phantom"};
+    
+    @Param({"human", "avian", "arachnid", "merling", "phantom"})
+    public String powerId;
+    
+    // Player state the old checks branch on: a fall while standing still on land
+    private boolean flying;
+    private boolean sneaking;
+    private boolean inWater;
+    private boolean fall;
+    
+    private UUID playerId;
+    private Map<UUID, PlayerData> playerData;
+    private Map<String, CrystalPower> crystalPowers;
+    private Map<UUID, PlayerPowerState> powerStates;
+    // Handlers only consume it, so no server is needed
+    private Player player;
+    
+    @Setup
+    public void setup() {
+        crystalPowers = new HashMap<>();
+        for (String id : POWER_IDS) {
+            crystalPowers.put(id, createPower(id));
+        }
+        
+        AbilityRegistry registry = new AbilityRegistry();
+        registerLikeModules(registry);
+        
+        playerId = UUID.randomUUID();
+        PlayerData data = new PlayerData(playerId);
+        data.setCrystalPowerId(powerId);
+        playerData = new HashMap<>();
+        playerData.put(playerId, data);
+        
+        CrystalPower crystalPower = crystalPowers.get(powerId);
+        powerStates = new HashMap<>();
+        powerStates.put(playerId, new PlayerPowerState(playerId, crystalPower, registry.getAbilities(crystalPower)));
+        
+        flying = false;
+        sneaking = false;
+        inWater = false;
+        fall = true;
+    }
+    
+    @Benchmark
+    public CrystalPower legacyMove() {
+        PlayerData data = playerData.get(playerId);
+        if (data == null || !data.hasSelectedCrystalPower()) return null;
+        
+        CrystalPower crystalPower = crystalPowers.get(data.getCrystalPowerId());
+        if (crystalPower == null) return null;
+        
+        CrystalPower.CrystalPowerProperties properties = crystalPower.getProperties();
+        if (properties.getSpeedMultiplier() != 1.0 && !flying) {
+            handle();
+        }
+        if (crystalPower.getId().equals("merling") && inWater) {
+            handle();
+        }
+        if (crystalPower.getId().equals("arachnid") && sneaking) {
+            handle();
+        }
+        if (crystalPower.getId().equals("phantom")) {
+            handle();
+        }
+        if (crystalPower.getId().equals("enderian") && inWater) {
+            handle();
+        }
+        if (crystalPower.getId().equals("phantom")) {
+            handle();
+        }
+        return crystalPower;
+    }
+    
+    @Benchmark
+    public PlayerPowerState registryMove() {
+        PlayerPowerState state = powerStates.get(playerId);
+        if (state == null) return null;
+        
+        AbilitySet abilities = state.getAbilities();
+        abilities.fire(AbilityTrigger.MOVE, null, player, state);
+        if (abilities.handles(AbilityTrigger.BLOCK_MOVE)) {
+            abilities.fire(AbilityTrigger.BLOCK_MOVE, null, player, state);
+        }
+        return state;
+    }
+    
+    @Benchmark
+    public CrystalPower legacyDamage() {
+        PlayerData data = playerData.get(playerId);
+        if (data == null || !data.hasSelectedCrystalPower()) return null;
+        
+        CrystalPower crystalPower = crystalPowers.get(data.getCrystalPowerId());
+        if (crystalPower == null) return null;
+        
+        CrystalPower.CrystalPowerProperties properties = crystalPower.getProperties();
+        if (properties.takesWaterDamage() && inWater) {
+            handle();
+        }
+        if (properties.takesSunDamage() && fall) {
+            handle();
+        }
+        if ((crystalPower.getId().equals("avian") || crystalPower.getId().equals("phantom") || crystalPower.getId().equals("elytrian"))
+            && fall) {
+            handle();
+        }
+        if (crystalPower.getId().equals("arachnid") && !fall) {
+            handle();
+        }
+        if (properties.getDamageMultiplier() != 1.0) {
+            handle();
+        }
+        return crystalPower;
+    }
+    
+    @Benchmark
+    public PlayerPowerState registryDamage() {
+        PlayerPowerState state = powerStates.get(playerId);
+        if (state == null) return null;
+        
+        state.getAbilities().fire(AbilityTrigger.DAMAGE, null, player, state);
+        return state;
+    }
+    
+    /**
+     * The same powers and triggers the ability modules register, with handlers that only
+     * consume their arguments
+     */
+    private static void registerLikeModules(AbilityRegistry registry) {
+        AbilityHandler<Object> handler = AbilityDispatchBenchmark::consume;
+        registry.register(power -> power.getProperties().takesWaterDamage(), AbilityTrigger.DAMAGE, handler)
+                .register(power -> power.getProperties().takesSunDamage(), AbilityTrigger.DAMAGE, handler)
+                .register(power -> power.getProperties().getDamageMultiplier() != 1.0, AbilityTrigger.DAMAGE, handler)
+                .register(power -> !power.getProperties().getWeakTo().isEmpty(), AbilityTrigger.DAMAGE_BY_ENTITY, handler)
+                .register(power -> power.getProperties().getSwimSpeed() != power.getProperties().getLandSpeed(), AbilityTrigger.ENVIRONMENT, handler)
+                .register("avian", AbilityTrigger.DAMAGE, handler)
+                .register("avian", AbilityTrigger.TOGGLE_FLIGHT, handler)
+                .register("arachnid", AbilityTrigger.DAMAGE, handler)
+                .register("arachnid", AbilityTrigger.MOVE, handler)
+                .register("elytrian", AbilityTrigger.DAMAGE, handler)
+                .register("elytrian", AbilityTrigger.INTERACT, handler)
+                .register("elytrian", AbilityTrigger.INVENTORY_CLICK, handler)
+                .register("enderian", AbilityTrigger.ENVIRONMENT, handler)
+                .register("enderian", AbilityTrigger.INTERACT, handler)
+                .register("merling", AbilityTrigger.ENVIRONMENT, handler)
+                .register("phantom", AbilityTrigger.DAMAGE, handler)
+                .register("phantom", AbilityTrigger.ENVIRONMENT, handler)
+                .register("phantom", AbilityTrigger.BLOCK_MOVE, handler)
+                .register("phantom", AbilityTrigger.INTERACT, handler);
+    }
+    
+    private static void consume(Object event, Player player, PlayerPowerState state) {
+        handle();
+    }
+    
+    private static void handle() {
+        Blackhole.consumeCPU(1);
+    }
+    
+    private static CrystalPower createPower(String id) {
+        CrystalPower crystalPower = new CrystalPower(id, id, "", Material.PLAYER_HEAD);
+        CrystalPower.CrystalPowerProperties properties = crystalPower.getProperties();
+        switch (id) {
+            case "enderian":
+                properties.setTakesDamageFromWater(true);
+                break;
+            case "merling":
+                properties.setSwimSpeed(1.5f).setLandSpeed(0.8f);
+                break;
+            case "phantom":
+                properties.setBurnsInSunlight(true);
+                break;
+            default:
+                break;
+        }
+        return crystalPower;
+    }
+}
@@ -0,0 +1,78 @@
+package com.crystalpowers.plugin.managers;
+
+import com.crystalpowers.plugin.models.PlayerData;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Measures the heap retained by a PlayerDataTable and by the HashMap<UUID, PlayerData>
+ * it replaced, holding the same players. Both object graphs are walked with JOL, so the
+ * figures include every array, node, UUID, view and string reachable from each cache.
+ * The table's own estimate, {@link PlayerDataTable#getFootprintBytes}, is printed
+ * alongside so it can be checked against the measurement.
+ * <p>
+ * Run with: mvn -Pbenchmarks test-compile exec:exec@footprint
+ * <br>
+ * Player counts can be changed with -Dfootprint.players="10000 500000".
+ */
+public final class PlayerDataTableFootprint {
+    private static final String[] POWER_IDS = {"human", "avian", "enderian", "arachnid", "merling", "elytrian", "phantom"};
+    private static final int[] DEFAULT_PLAYER_COUNTS = {1_000, 100_000, 1_000_000};
+    
+    // Share of cached players that are online and so keep a view
+    private static final double VIEWED_SHARE = 0.1;
+    
+    private PlayerDataTableFootprint() {
+    }
+    
+    public static void main(String[] args) {
+        int[] playerCounts = args.length > 0 ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray() : DEFAULT_PLAYER_COUNTS;
+        
+        System.out.printf("%10s %10s %14s %14s %14s %8s%n",
+            "players", "capacity", "table B/plr", "estimate B/plr", "HashMap B/plr", "ratio");
+        for (int players : playerCounts) {
+            measure(players);
+        }
+    }
+    
+    private static void measure(int players) {
+        Random random = new Random(players);
+        List<UUID> playerIds = new ArrayList<>(players);
+        Map<UUID, PlayerData> map = new HashMap<>();
+        PlayerDataTable table = new PlayerDataTable(Arrays.asList(POWER_IDS));
+        
+        for (int i = 0; i < players; i++) {
+            UUID playerId = new UUID(random.nextLong(), random.nextLong());
+            PlayerData data = new PlayerData(playerId);
+            // Roughly one player in ten has not chosen a power yet
+            if (random.nextInt(10) != 0) {
+                data.setCrystalPowerId(POWER_IDS[random.nextInt(POWER_IDS.length)]);
+            }
+            playerIds.add(playerId);
+            map.put(playerId, data);
+            table.put(data);
+        }
+        
+        // Caching a player hands out a view; the manager releases it when they quit
+        int viewed = (int) (players * VIEWED_SHARE);
+        for (int i = viewed; i < players; i++) {
+            table.releaseView(playerIds.get(i));
+        }
+        
+        long tableBytes = GraphLayout.parseInstance(table).totalSize();
+        long mapBytes = GraphLayout.parseInstance(map).totalSize();
+        System.out.printf("%10d %10d %14.1f %14.1f %14.1f %7.2fx%n",
+            players, table.capacity(),
+            (double) tableBytes / players,
+            (double) table.getFootprintBytes() / players,
+            (double) mapBytes / players,
+            (double) mapBytes / tableBytes);
+    }
+}
@@ -1,21 +1,39 @@
 package com.crystalpowers.plugin;
 
+import com.crystalpowers.plugin.abilities.EnvironmentScheduler;
+import com.crystalpowers.plugin.abilities.MoveFilter;
 import com.crystalpowers.plugin.commands.EncryptionCommand;
 import com.crystalpowers.plugin.commands.CrystalPowerCommand;
+import com.crystalpowers.plugin.commands.StorageCommand;
 import com.crystalpowers.plugin.listeners.PlayerListener;
 import com.crystalpowers.plugin.managers.CrystalPowerManager;
+import com.crystalpowers.plugin.managers.LightLevelCache;
 import com.crystalpowers.plugin.managers.PlayerDataManager;
-import com.crystalpowers.plugin.models.PlayerData;
+import com.crystalpowers.plugin.managers.PlayerStatManager;
+import com.crystalpowers.plugin.managers.PotionEffectManager;
+import com.crystalpowers.plugin.managers.WorldStateManager;
+import com.crystalpowers.plugin.models.PlayerPowerState;
+import com.crystalpowers.plugin.storage.StorageExecutor;
 import com.crystalpowers.plugin.utils.EncryptionUtil;
 import org.bukkit.GameMode;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.util.concurrent.TimeUnit;
+
 public class CrystalPowersPlugin extends JavaPlugin {
     
     private static CrystalPowersPlugin instance;
     private CrystalPowerManager crystalPowerManager;
     private PlayerDataManager playerDataManager;
+    private WorldStateManager worldStateManager;
+    private LightLevelCache lightLevelCache;
+    private PotionEffectManager potionEffectManager;
+    private PlayerStatManager playerStatManager;
+    private StorageExecutor storageExecutor;
+    private MoveFilter moveFilter;
+    private EnvironmentScheduler environmentScheduler;
     
     @Override
     public void onEnable() {
@@ -27,29 +45,73 @@ public class CrystalPowersPlugin extends JavaPlugin {
         // Initialize encryption if enabled in config
         initializeEncryption();
         
+        // All encryption and storage I/O runs on this executor, never on the main thread
+        this.storageExecutor = new StorageExecutor("CrystalPowers-Storage",
+            getConfig().getInt("storage.executor.threads", 2),
+            getConfig().getInt("storage.executor.queue_limit", 256),
+            getConfig().getLong("storage.executor.block_timeout_ms", 5000),
+            // The main thread never waits for room, except to flush on shutdown
+            () -> !getServer().isPrimaryThread() || !isEnabled(),
+            getLogger());
+        
         // Initialize managers
+        this.worldStateManager = new WorldStateManager(this);
+        this.lightLevelCache = new LightLevelCache(this, getConfig().getConfigurationSection("abilities.light_cache"));
+        this.potionEffectManager = new PotionEffectManager();
+        this.playerStatManager = new PlayerStatManager(this);
         this.crystalPowerManager = new CrystalPowerManager(this);
         this.playerDataManager = new PlayerDataManager(this);
+        this.moveFilter = new MoveFilter(getConfig().getConfigurationSection("abilities.move_filter"));
+        this.environmentScheduler = new EnvironmentScheduler(this, getConfig().getConfigurationSection("abilities.environment"));
         
         // Register commands
         getCommand("crystalpower").setExecutor(new CrystalPowerCommand(this));
         getCommand("encryption").setExecutor(new EncryptionCommand(this));
+        getCommand("crystalstorage").setExecutor(new StorageCommand(this));
           // Register listeners
         getServer().getPluginManager().registerEvents(new PlayerListener(this), this);
+        getServer().getPluginManager().registerEvents(worldStateManager, this);
+        getServer().getPluginManager().registerEvents(lightLevelCache, this);
+        getServer().getPluginManager().registerEvents(playerStatManager, this);
         // Note: CrystalPowerGUIListener is no longer needed as CrystalPowerBookGUI handles its own events
         // getServer().getPluginManager().registerEvents(new CrystalPowerGUIListener(this), this);
         
         // Start flight maintenance task for Avian players
         startFlightMaintenanceTask();
         
+        // Check sunlight, rain, water and darkness for every player at a fixed rate
+        worldStateManager.start();
+        lightLevelCache.start();
+        environmentScheduler.start();
+        
         getLogger().info("Crystal Powers plugin has been enabled!");
     }
     
     @Override
     public void onDisable() {
+        if (environmentScheduler != null) {
+            environmentScheduler.stop();
+        }
+        if (lightLevelCache != null) {
+            lightLevelCache.stop();
+        }
+        if (worldStateManager != null) {
+            worldStateManager.stop();
+        }
+        if (playerStatManager != null) {
+            // Modifiers are saved with the player and would outlive the plugin otherwise
+            playerStatManager.clearAll();
+        }
         if (playerDataManager != null) {
             playerDataManager.saveAllData();
         }
+        if (storageExecutor != null) {
+            // Let anything still queued, such as a migration batch, finish before the plugin unloads
+            if (!storageExecutor.shutdown(getConfig().getLong("storage.shutdown_flush_timeout", 10), TimeUnit.SECONDS)) {
+                getLogger().severe("Timed out draining the storage queue! " + storageExecutor.getQueueLength() + " tasks did not run.");
+            }
+            getLogger().info("Storage executor summary: " + String.join(", ", storageExecutor.getReport()));
+        }
         
         getLogger().info("Crystal Powers plugin has been disabled!");
     }
@@ -66,10 +128,61 @@ public class CrystalPowersPlugin extends JavaPlugin {
         return playerDataManager;
     }
     
+    public WorldStateManager getWorldStateManager() {
+        return worldStateManager;
+    }
+    
+    /**
+     * Shared light level lookups for ability rules
+     */
+    public LightLevelCache getLightLevelCache() {
+        return lightLevelCache;
+    }
+    
+    /**
+     * Potion effects abilities keep up on players, applied only when they change
+     */
+    public PotionEffectManager getPotionEffectManager() {
+        return potionEffectManager;
+    }
+    
+    /**
+     * Max health and speed modifiers of each player's crystal power
+     */
+    public PlayerStatManager getPlayerStatManager() {
+        return playerStatManager;
+    }
+    
+    /**
+     * Executor for encryption and storage I/O, shared by every player data store
+     */
+    public StorageExecutor getStorageExecutor() {
+        return storageExecutor;
+    }
+    
+    /**
+     * Filter deciding which moves re-check a player's surroundings
+     */
+    public MoveFilter getMoveFilter() {
+        return moveFilter;
+    }
+    
+    /**
+     * Scheduler running the periodic environment checks
+     */
+    public EnvironmentScheduler getEnvironmentScheduler() {
+        return environmentScheduler;
+    }
+    
     public void reloadPlugin() {
         reloadConfig();
         initializeEncryption(); // Re-initialize encryption on reload
         crystalPowerManager.reloadCrystalPowers();
+        playerDataManager.invalidatePowerStates();
+        playerStatManager.reconcileAll();
+        moveFilter.load(getConfig().getConfigurationSection("abilities.move_filter"));
+        environmentScheduler.load(getConfig().getConfigurationSection("abilities.environment"));
+        lightLevelCache.load(getConfig().getConfigurationSection("abilities.light_cache"));
         getLogger().info("Crystal Powers plugin has been reloaded!");
     }
     
@@ -89,9 +202,30 @@ public class CrystalPowersPlugin extends JavaPlugin {
                 getLogger().warning("Master password: " + masterPassword);
             }
             
+            String mode = getConfig().getString("encryption.mode", "field");
+            if (!mode.equalsIgnoreCase("field") && !mode.equalsIgnoreCase("file")) {
+                getLogger().warning("Unknown encryption mode '" + mode + "', falling back to field");
+                mode = "field";
+            }
+            EncryptionUtil.setWholeFileEncryption(mode.equalsIgnoreCase("file"));
+            
             try {
-                EncryptionUtil.initialize(masterPassword);
-                getLogger().info("🔒 Encryption enabled - Player data will be encrypted");
+                EncryptionUtil.initialize(getConfig().getInt("encryption.key-version", 1), masterPassword);
+                
+                // Keys replaced by /encryption generate-key stay readable until re-encryption finishes
+                ConfigurationSection previousKeys = getConfig().getConfigurationSection("encryption.previous-keys");
+                if (previousKeys != null && !previousKeys.getKeys(false).isEmpty()) {
+                    for (String version : previousKeys.getKeys(false)) {
+                        try {
+                            EncryptionUtil.addKey(Integer.parseInt(version), previousKeys.getString(version));
+                        } catch (NumberFormatException e) {
+                            getLogger().warning("Ignoring previous encryption key with invalid version: " + version);
+                        }
+                    }
+                    getLogger().warning("Data encrypted with older keys may remain - run /encryption reencrypt to finish the key rotation");
+                }
+                getLogger().info("🔒 Encryption enabled - Player data will be encrypted (" + mode.toLowerCase() + " mode, key version " +
+                                EncryptionUtil.getKeyVersion() + ")");
             } catch (Exception e) {
                 getLogger().severe("Failed to initialize encryption: " + e.getMessage());
                 getLogger().severe("Player data will NOT be encrypted!");
@@ -105,8 +239,8 @@ public class CrystalPowersPlugin extends JavaPlugin {
         // Run every 5 seconds to check and maintain flight for Avian players
         getServer().getScheduler().runTaskTimer(this, () -> {
             for (Player player : getServer().getOnlinePlayers()) {
-                PlayerData data = playerDataManager.getExistingPlayerData(player);
-                if (data != null && data.hasSelectedCrystalPower() && "avian".equals(data.getCrystalPowerId())) {
+                PlayerPowerState state = playerDataManager.getPowerState(player);
+                if (state != null && state.isAvian()) {
                     // Check if Avian player should have flight but doesn't
                     if (!player.getAllowFlight() && 
                         (player.getGameMode() == GameMode.SURVIVAL || player.getGameMode() == GameMode.ADVENTURE)) {
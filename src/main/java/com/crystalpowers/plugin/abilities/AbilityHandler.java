@@ -0,0 +1,16 @@
+package com.crystalpowers.plugin.abilities;
+
+import com.crystalpowers.plugin.models.PlayerPowerState;
+import org.bukkit.entity.Player;
+
+/**
+ * Reacts to one kind of event, or scheduled check, for players with a given crystal power
+ */
+@FunctionalInterface
+public interface AbilityHandler<E> {
+    /**
+     * @param player The player holding the power - the damaged entity, the mover, the clicker and so on
+     * @param state The player's resolved crystal power
+     */
+    void handle(E event, Player player, PlayerPowerState state);
+}
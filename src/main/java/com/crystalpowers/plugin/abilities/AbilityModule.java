@@ -0,0 +1,8 @@
+package com.crystalpowers.plugin.abilities;
+
+/**
+ * A group of ability handlers, usually those of one crystal power
+ */
+public interface AbilityModule {
+    void register(AbilityRegistry registry);
+}
@@ -0,0 +1,101 @@
+package com.crystalpowers.plugin.abilities;
+
+import com.crystalpowers.plugin.models.CrystalPower;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Maps crystal powers to the handlers that implement their abilities. Handlers are
+ * registered per trigger, either for one power ID or for every power matching a
+ * condition such as a property, and compiled into an {@link AbilitySet} per power the
+ * first time it is needed. New powers only need to register their handlers here;
+ * PlayerListener dispatches to whatever is registered.
+ */
+public class AbilityRegistry {
+    private final List<Registration<?>> registrations;
+    private final Map<String, AbilitySet> compiled;
+    
+    public AbilityRegistry() {
+        this.registrations = new ArrayList<>();
+        this.compiled = new HashMap<>();
+    }
+    
+    /**
+     * Register a handler for one crystal power
+     */
+    public <E> AbilityRegistry register(String crystalPowerId, AbilityTrigger<E> trigger, AbilityHandler<? super E> handler) {
+        return register(crystalPower -> crystalPower.getId().equals(crystalPowerId), trigger, handler);
+    }
+    
+    /**
+     * Register a handler for every crystal power matching a condition, e.g. a property
+     */
+    public <E> AbilityRegistry register(Predicate<CrystalPower> appliesTo, AbilityTrigger<E> trigger, AbilityHandler<? super E> handler) {
+        registrations.add(new Registration<>(appliesTo, trigger, handler));
+        compiled.clear();
+        return this;
+    }
+    
+    /**
+     * Register everything a module provides
+     */
+    public AbilityRegistry register(AbilityModule module) {
+        module.register(this);
+        return this;
+    }
+    
+    /**
+     * The compiled handlers of a crystal power. Powers without any handlers share one empty set.
+     */
+    public AbilitySet getAbilities(CrystalPower crystalPower) {
+        return compiled.computeIfAbsent(crystalPower.getId(), id -> compile(crystalPower));
+    }
+    
+    /**
+     * Remove every handler, e.g. before the crystal powers are reloaded
+     */
+    public void clear() {
+        registrations.clear();
+        compiled.clear();
+    }
+    
+    private AbilitySet compile(CrystalPower crystalPower) {
+        List<List<AbilityHandler<?>>> bySlot = new ArrayList<>();
+        for (int slot = 0; slot < AbilityTrigger.COUNT; slot++) {
+            bySlot.add(new ArrayList<>());
+        }
+        
+        boolean any = false;
+        for (Registration<?> registration : registrations) {
+            if (registration.appliesTo.test(crystalPower)) {
+                bySlot.get(registration.trigger.getSlot()).add(registration.handler);
+                any = true;
+            }
+        }
+        if (!any) {
+            return AbilitySet.EMPTY;
+        }
+        
+        AbilityHandler<?>[][] handlers = new AbilityHandler<?>[AbilityTrigger.COUNT][];
+        for (int slot = 0; slot < AbilityTrigger.COUNT; slot++) {
+            handlers[slot] = bySlot.get(slot).toArray(new AbilityHandler<?>[0]);
+        }
+        return new AbilitySet(handlers);
+    }
+    
+    private static final class Registration<E> {
+        private final Predicate<CrystalPower> appliesTo;
+        private final AbilityTrigger<E> trigger;
+        private final AbilityHandler<? super E> handler;
+        
+        private Registration(Predicate<CrystalPower> appliesTo, AbilityTrigger<E> trigger, AbilityHandler<? super E> handler) {
+            this.appliesTo = appliesTo;
+            this.trigger = trigger;
+            this.handler = handler;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.crystalpowers.plugin.abilities;
+
+import com.crystalpowers.plugin.models.PlayerPowerState;
+import org.bukkit.entity.Player;
+
+/**
+ * The handlers of one crystal power, indexed by trigger. Built by {@link AbilityRegistry}
+ * and never changed afterwards, so firing an event needs no locking or copying.
+ */
+public final class AbilitySet {
+    private static final AbilityHandler<?>[] NO_HANDLERS = new AbilityHandler<?>[0];
+    
+    static final AbilitySet EMPTY = new AbilitySet(new AbilityHandler<?>[AbilityTrigger.COUNT][]);
+    
+    private final AbilityHandler<?>[][] handlers;
+    
+    AbilitySet(AbilityHandler<?>[][] handlers) {
+        for (int slot = 0; slot < handlers.length; slot++) {
+            if (handlers[slot] == null || handlers[slot].length == 0) {
+                handlers[slot] = NO_HANDLERS;
+            }
+        }
+        this.handlers = handlers;
+    }
+    
+    /**
+     * Whether the power has any handler for the trigger, so callers can skip work up front
+     */
+    public boolean handles(AbilityTrigger<?> trigger) {
+        return handlers[trigger.getSlot()].length > 0;
+    }
+    
+    /**
+     * Run the power's handlers for the event, in the order they were registered
+     */
+    @SuppressWarnings("unchecked")
+    public <E> void fire(AbilityTrigger<E> trigger, E event, Player player, PlayerPowerState state) {
+        for (AbilityHandler<?> handler : handlers[trigger.getSlot()]) {
+            ((AbilityHandler<? super E>) handler).handle(event, player, state);
+        }
+    }
+}
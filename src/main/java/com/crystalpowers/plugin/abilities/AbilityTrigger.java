@@ -0,0 +1,53 @@
+package com.crystalpowers.plugin.abilities;
+
+import org.bukkit.event.entity.EntityDamageByEntityEvent;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerToggleFlightEvent;
+
+/**
+ * An event kind abilities can react to, or a scheduled check. Each trigger has a fixed slot, so finding the
+ * handlers for an event is a single array lookup. Typed, so a handler registered for a
+ * trigger always receives the right kind of event.
+ */
+public final class AbilityTrigger<E> {
+    public static final AbilityTrigger<EntityDamageEvent> DAMAGE = new AbilityTrigger<>(0, "damage");
+    public static final AbilityTrigger<EntityDamageByEntityEvent> DAMAGE_BY_ENTITY = new AbilityTrigger<>(1, "damage by entity");
+    public static final AbilityTrigger<PlayerMoveEvent> MOVE = new AbilityTrigger<>(2, "move");
+    public static final AbilityTrigger<PlayerToggleFlightEvent> TOGGLE_FLIGHT = new AbilityTrigger<>(3, "toggle flight");
+    public static final AbilityTrigger<PlayerInteractEvent> INTERACT = new AbilityTrigger<>(4, "interact");
+    public static final AbilityTrigger<InventoryClickEvent> INVENTORY_CLICK = new AbilityTrigger<>(5, "inventory click");
+    
+    /**
+     * A move into another block or world, for abilities that depend on the player's
+     * surroundings. Head turns and moves within a block are filtered out by {@link MoveFilter}.
+     */
+    public static final AbilityTrigger<PlayerMoveEvent> BLOCK_MOVE = new AbilityTrigger<>(6, "block move");
+    
+    /**
+     * A periodic check of the player's surroundings by {@link EnvironmentScheduler},
+     * run whether or not the player moves
+     */
+    public static final AbilityTrigger<EnvironmentCheck> ENVIRONMENT = new AbilityTrigger<>(7, "environment");
+    
+    static final int COUNT = 8;
+    
+    private final int slot;
+    private final String name;
+    
+    private AbilityTrigger(int slot, String name) {
+        this.slot = slot;
+        this.name = name;
+    }
+    
+    int getSlot() {
+        return slot;
+    }
+    
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,43 @@
+package com.crystalpowers.plugin.abilities;
+
+import com.crystalpowers.plugin.models.PlayerPowerState;
+import org.bukkit.entity.Player;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+
+/**
+ * Arachnid: climbs walls while sneaking, immune to poison and wither
+ */
+public class ArachnidAbilities implements AbilityModule {
+    private static final String ID = "arachnid";
+    
+    @Override
+    public void register(AbilityRegistry registry) {
+        registry.register(ID, AbilityTrigger.DAMAGE, ArachnidAbilities::poisonImmunity)
+                .register(ID, AbilityTrigger.MOVE, ArachnidAbilities::climbWalls);
+    }
+    
+    private static void poisonImmunity(EntityDamageEvent event, Player player, PlayerPowerState state) {
+        if (event.getCause() == EntityDamageEvent.DamageCause.POISON ||
+            event.getCause() == EntityDamageEvent.DamageCause.WITHER) {
+            event.setCancelled(true);
+        }
+    }
+    
+    private static void climbWalls(PlayerMoveEvent event, Player player, PlayerPowerState state) {
+        if (player.isSneaking() && isAgainstWall(player)) {
+            player.setVelocity(player.getVelocity().setY(0.2));
+        }
+    }
+    
+    private static boolean isAgainstWall(Player player) {
+        // Simple wall detection - check if there's a solid block adjacent to the player
+        var location = player.getLocation();
+        var world = location.getWorld();
+        
+        return world.getBlockAt(location.clone().add(1, 0, 0)).getType().isSolid() ||
+               world.getBlockAt(location.clone().add(-1, 0, 0)).getType().isSolid() ||
+               world.getBlockAt(location.clone().add(0, 0, 1)).getType().isSolid() ||
+               world.getBlockAt(location.clone().add(0, 0, -1)).getType().isSolid();
+    }
+}
@@ -0,0 +1,29 @@
+package com.crystalpowers.plugin.abilities;
+
+import com.crystalpowers.plugin.models.PlayerPowerState;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerToggleFlightEvent;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+/**
+ * Avian: slow falling while flying, no fall damage
+ */
+public class AvianAbilities implements AbilityModule {
+    private static final String ID = "avian";
+    
+    @Override
+    public void register(AbilityRegistry registry) {
+        registry.register(ID, AbilityTrigger.DAMAGE, CommonAbilities::cancelFallDamage)
+                .register(ID, AbilityTrigger.TOGGLE_FLIGHT, AvianAbilities::slowFalling);
+    }
+    
+    private static void slowFalling(PlayerToggleFlightEvent event, Player player, PlayerPowerState state) {
+        // Handle Avian flight with slow falling
+        if (event.isFlying()) {
+            player.addPotionEffect(new PotionEffect(PotionEffectType.SLOW_FALLING, Integer.MAX_VALUE, 0, false, false));
+        } else {
+            player.removePotionEffect(PotionEffectType.SLOW_FALLING);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.crystalpowers.plugin.abilities;
+
+import com.crystalpowers.plugin.managers.LightLevelCache;
+import com.crystalpowers.plugin.managers.PlayerStatManager;
+import com.crystalpowers.plugin.managers.WorldStateManager;
+import com.crystalpowers.plugin.models.PlayerPowerState;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.event.entity.EntityDamageByEntityEvent;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Abilities driven by crystal power properties rather than by a particular power,
+ * plus handlers shared by several powers
+ */
+public class CommonAbilities implements AbilityModule {
+    private final WorldStateManager worldStates;
+    private final LightLevelCache lightLevels;
+    private final PlayerStatManager stats;
+    
+    public CommonAbilities(WorldStateManager worldStates, LightLevelCache lightLevels, PlayerStatManager stats) {
+        this.worldStates = worldStates;
+        this.lightLevels = lightLevels;
+        this.stats = stats;
+    }
+    
+    @Override
+    public void register(AbilityRegistry registry) {
+        registry.register(power -> power.getProperties().takesWaterDamage(), AbilityTrigger.DAMAGE, CommonAbilities::amplifyWaterDamage)
+                .register(power -> power.getProperties().takesSunDamage(), AbilityTrigger.DAMAGE, this::burnInSunlight)
+                .register(power -> power.getProperties().getDamageMultiplier() != 1.0, AbilityTrigger.DAMAGE, CommonAbilities::multiplyDamage)
+                .register(power -> !power.getProperties().getWeakTo().isEmpty(), AbilityTrigger.DAMAGE_BY_ENTITY, CommonAbilities::amplifyWeakness)
+                .register(power -> power.getProperties().getSwimSpeed() != power.getProperties().getLandSpeed(), AbilityTrigger.ENVIRONMENT, this::trackWater);
+    }
+    
+    /**
+     * Cancel fall damage, for powers that fly or phase
+     */
+    public static void cancelFallDamage(EntityDamageEvent event, Player player, PlayerPowerState state) {
+        if (event.getCause() == EntityDamageEvent.DamageCause.FALL) {
+            event.setCancelled(true);
+        }
+    }
+    
+    private static void amplifyWaterDamage(EntityDamageEvent event, Player player, PlayerPowerState state) {
+        if (event.getCause() == EntityDamageEvent.DamageCause.DROWNING || 
+            player.getLocation().getBlock().getType() == Material.WATER) {
+            event.setDamage(event.getDamage() * 2); // Double water damage
+        }
+    }
+    
+    private void burnInSunlight(EntityDamageEvent event, Player player, PlayerPowerState state) {
+        if (event.getCause() == EntityDamageEvent.DamageCause.FIRE_TICK &&
+            worldStates.getState(player.getWorld()).isDay() &&
+            lightLevels.getLightFromSky(player.getLocation()) > 10) {
+            // Burn in sunlight
+            player.setFireTicks(60);
+        }
+    }
+    
+    private static void multiplyDamage(EntityDamageEvent event, Player player, PlayerPowerState state) {
+        event.setDamage(event.getDamage() * state.getDamageMultiplier());
+    }
+    
+    private static void amplifyWeakness(EntityDamageByEntityEvent event, Player player, PlayerPowerState state) {
+        // Handle weakness to specific materials/weapons
+        if (event.getDamager() instanceof Player) {
+            Player attacker = (Player) event.getDamager();
+            ItemStack weapon = attacker.getInventory().getItemInMainHand();
+            if (state.isWeakTo(weapon.getType())) {
+                event.setDamage(event.getDamage() * 1.5); // 50% more damage
+            }
+        }
+    }
+    
+    private void trackWater(EnvironmentCheck check, Player player, PlayerPowerState state) {
+        // Swap between land and swim speed
+        stats.setInWater(player, player.isInWater(), check.getRefreshTicks());
+    }
+}
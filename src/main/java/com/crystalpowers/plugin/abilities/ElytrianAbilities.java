@@ -0,0 +1,62 @@
+package com.crystalpowers.plugin.abilities;
+
+import com.crystalpowers.plugin.CrystalPowersPlugin;
+import com.crystalpowers.plugin.models.PlayerPowerState;
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.event.block.Action;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Elytrian: natural elytra instead of a chestplate, launching, no fall damage
+ */
+public class ElytrianAbilities implements AbilityModule {
+    private static final String ID = "elytrian";
+    
+    private final CrystalPowersPlugin plugin;
+    
+    public ElytrianAbilities(CrystalPowersPlugin plugin) {
+        this.plugin = plugin;
+    }
+    
+    @Override
+    public void register(AbilityRegistry registry) {
+        registry.register(ID, AbilityTrigger.DAMAGE, CommonAbilities::cancelFallDamage)
+                .register(ID, AbilityTrigger.INTERACT, ElytrianAbilities::launch)
+                .register(ID, AbilityTrigger.INVENTORY_CLICK, this::restrictChestplate);
+    }
+    
+    private static void launch(PlayerInteractEvent event, Player player, PlayerPowerState state) {
+        if (event.getAction() == Action.RIGHT_CLICK_AIR && !player.isSneaking()) {
+            // Launch player upward and forward
+            var velocity = player.getLocation().getDirection().multiply(1.5);
+            velocity.setY(velocity.getY() + 1.0);
+            player.setVelocity(velocity);
+            player.sendMessage(ChatColor.YELLOW + "Launched!");
+        }
+    }
+    
+    private void restrictChestplate(InventoryClickEvent event, Player player, PlayerPowerState state) {
+        // Prevent wearing chestplate
+        if (event.getSlot() == 38) { // Chestplate slot
+            ItemStack item = event.getCursor();
+            if (item != null && item.getType().name().contains("CHESTPLATE")) {
+                event.setCancelled(true);
+                player.sendMessage(ChatColor.RED + "Elytrians cannot wear chestplates due to their natural wings!");
+                return;
+            }
+        }
+        
+        // Auto-equip elytra if chestplate slot is empty
+        plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
+            if (player.getInventory().getChestplate() == null || 
+                player.getInventory().getChestplate().getType() == Material.AIR) {
+                player.getInventory().setChestplate(new ItemStack(Material.ELYTRA));
+                player.sendMessage(ChatColor.YELLOW + "Your natural wings have manifested as elytra!");
+            }
+        }, 1L);
+    }
+}
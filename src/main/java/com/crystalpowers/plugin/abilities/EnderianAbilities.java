@@ -0,0 +1,55 @@
+package com.crystalpowers.plugin.abilities;
+
+import com.crystalpowers.plugin.managers.WorldStateManager;
+import com.crystalpowers.plugin.models.PlayerPowerState;
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.event.block.Action;
+import org.bukkit.event.player.PlayerInteractEvent;
+
+/**
+ * Enderian: teleport with an ender pearl, hurt by water and rain
+ */
+public class EnderianAbilities implements AbilityModule {
+    private static final String ID = "enderian";
+    
+    private final WorldStateManager worldStates;
+    
+    public EnderianAbilities(WorldStateManager worldStates) {
+        this.worldStates = worldStates;
+    }
+    
+    @Override
+    public void register(AbilityRegistry registry) {
+        registry.register(ID, AbilityTrigger.ENVIRONMENT, this::waterDamage)
+                .register(ID, AbilityTrigger.INTERACT, EnderianAbilities::teleport);
+    }
+    
+    private void waterDamage(EnvironmentCheck check, Player player, PlayerPowerState state) {
+        if (player.isInWater() || worldStates.getState(player.getWorld()).hasStorm()) {
+            // Deal water damage
+            player.damage(1.0);
+            player.sendMessage("§cYou take damage from water!");
+        }
+    }
+    
+    private static void teleport(PlayerInteractEvent event, Player player, PlayerPowerState state) {
+        if (event.getAction() != Action.RIGHT_CLICK_AIR || 
+            player.getInventory().getItemInMainHand().getType() != Material.ENDER_PEARL) {
+            return;
+        }
+        
+        event.setCancelled(true);
+        
+        // Custom teleportation logic
+        var targetBlock = player.getTargetBlock(null, 50);
+        if (targetBlock != null && targetBlock.getType() != Material.AIR) {
+            var targetLocation = targetBlock.getLocation().add(0, 1, 0);
+            player.teleport(targetLocation);
+            player.sendMessage(ChatColor.DARK_PURPLE + "Teleported!");
+            
+            // Don't consume the ender pearl
+        }
+    }
+}
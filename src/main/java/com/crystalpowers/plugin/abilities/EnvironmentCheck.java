@@ -0,0 +1,46 @@
+package com.crystalpowers.plugin.abilities;
+
+/**
+ * Passed to {@link AbilityTrigger#ENVIRONMENT} handlers in place of an event
+ */
+public final class EnvironmentCheck {
+    private static final int MARGIN_TICKS = 20;
+    
+    private final long tick;
+    private final int intervalTicks;
+    
+    EnvironmentCheck(long tick, int intervalTicks) {
+        this.tick = tick;
+        this.intervalTicks = intervalTicks;
+    }
+    
+    /**
+     * Ticks since the scheduler started
+     */
+    public long getTick() {
+        return tick;
+    }
+    
+    /**
+     * Ticks until the player is checked again, unless the scheduler falls behind its budget
+     */
+    public int getIntervalTicks() {
+        return intervalTicks;
+    }
+    
+    /**
+     * A potion effect duration that lasts at least the given ticks and until a little
+     * after the player's next check, so refreshed effects do not flicker
+     */
+    public int durationAtLeast(int ticks) {
+        return Math.max(ticks, getRefreshTicks());
+    }
+    
+    /**
+     * Remaining ticks below which an effect must be refreshed now, as it would otherwise
+     * run out before the player's next check
+     */
+    public int getRefreshTicks() {
+        return intervalTicks + MARGIN_TICKS;
+    }
+}
@@ -0,0 +1,196 @@
+package com.crystalpowers.plugin.abilities;
+
+import com.crystalpowers.plugin.CrystalPowersPlugin;
+import com.crystalpowers.plugin.models.PlayerPowerState;
+import com.crystalpowers.plugin.models.WorldState;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+
+/**
+ * Runs {@link AbilityTrigger#ENVIRONMENT} handlers - sunlight, rain, water and darkness -
+ * for every online player at a fixed rate, whether they move or not.
+ *
+ * Players are spread over intervalTicks buckets and one bucket is due each tick, so the
+ * cost per tick stays flat as players join. Checks stop for the tick once its time budget
+ * is spent; the rest stay queued and run first on the next tick. When day, night or the
+ * weather changes in a world, its players are queued at once instead of waiting their turn.
+ *
+ * Main thread only.
+ */
+public class EnvironmentScheduler {
+    private final CrystalPowersPlugin plugin;
+    private final Map<UUID, Entry> entries;
+    private final Queue<Entry> due;
+    private List<List<Entry>> buckets;
+    private int intervalTicks;
+    private long budgetNanos;
+    private BukkitTask task;
+    private long tick;
+    private long checks;
+    private long deferred;
+    private long overBudgetTicks;
+    private long busyNanos;
+    
+    public EnvironmentScheduler(CrystalPowersPlugin plugin, ConfigurationSection config) {
+        this.plugin = plugin;
+        this.entries = new HashMap<>();
+        this.due = new ArrayDeque<>();
+        load(config);
+    }
+    
+    /**
+     * Read the rate and budget from the abilities.environment section, which may be null,
+     * and spread the tracked players over the new buckets
+     */
+    public void load(ConfigurationSection config) {
+        intervalTicks = config != null ? Math.max(1, config.getInt("interval_ticks", 20)) : 20;
+        budgetNanos = (long) ((config != null ? Math.max(0.0, config.getDouble("tick_budget_ms", 2.0)) : 2.0) * 1_000_000);
+        
+        buckets = new ArrayList<>(intervalTicks);
+        for (int i = 0; i < intervalTicks; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (Entry entry : entries.values()) {
+            assign(entry);
+        }
+    }
+    
+    /**
+     * Track every online player and start checking them each tick
+     */
+    public void start() {
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            track(player);
+        }
+        if (task == null) {
+            for (WorldState.Transition transition : WorldState.Transition.values()) {
+                plugin.getWorldStateManager().subscribe(transition, this::checkWorld);
+            }
+            task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+        }
+    }
+    
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+    
+    public void track(Player player) {
+        if (!entries.containsKey(player.getUniqueId())) {
+            Entry entry = new Entry(player);
+            entries.put(player.getUniqueId(), entry);
+            assign(entry);
+        }
+    }
+    
+    public void untrack(Player player) {
+        Entry entry = entries.remove(player.getUniqueId());
+        if (entry != null) {
+            buckets.get(entry.bucket).remove(entry);
+            entry.removed = true;
+        }
+    }
+    
+    /**
+     * Scheduler statistics, one line per figure
+     */
+    public List<String> getReport() {
+        return List.of(
+            entries.size() + " players in " + intervalTicks + " buckets, " + due.size() + " queued",
+            "checks " + checks + ", deferred " + deferred + ", ticks over budget " + overBudgetTicks,
+            String.format("average %.3f ms per tick, budget %.3f ms", tick == 0 ? 0.0 : busyNanos / 1e6 / tick, budgetNanos / 1e6)
+        );
+    }
+    
+    /**
+     * Queue every player in a world whose time of day or weather just changed
+     */
+    private void checkWorld(WorldState world) {
+        for (Entry entry : entries.values()) {
+            if (!entry.queued && entry.player.getWorld() == world.getWorld()) {
+                entry.queued = true;
+                due.add(entry);
+            }
+        }
+    }
+    
+    /**
+     * Put a player in the bucket with the fewest players
+     */
+    private void assign(Entry entry) {
+        int smallest = 0;
+        for (int i = 1; i < buckets.size(); i++) {
+            if (buckets.get(i).size() < buckets.get(smallest).size()) {
+                smallest = i;
+            }
+        }
+        entry.bucket = smallest;
+        buckets.get(smallest).add(entry);
+    }
+    
+    private void tick() {
+        long start = System.nanoTime();
+        tick++;
+        
+        for (Entry entry : buckets.get((int) (tick % intervalTicks))) {
+            // A player still queued from a slow tick is not queued twice
+            if (!entry.queued) {
+                entry.queued = true;
+                due.add(entry);
+            }
+        }
+        
+        EnvironmentCheck check = new EnvironmentCheck(tick, intervalTicks);
+        Entry entry;
+        // Always check at least one player, so a tiny budget cannot stall the queue
+        while ((entry = due.poll()) != null) {
+            entry.queued = false;
+            if (!entry.removed) {
+                check(entry.player, check);
+            }
+            
+            if (!due.isEmpty() && System.nanoTime() - start >= budgetNanos) {
+                deferred += due.size();
+                overBudgetTicks++;
+                break;
+            }
+        }
+        busyNanos += System.nanoTime() - start;
+    }
+    
+    private void check(Player player, EnvironmentCheck check) {
+        PlayerPowerState state = plugin.getPlayerDataManager().getPowerState(player);
+        if (state == null || !state.getAbilities().handles(AbilityTrigger.ENVIRONMENT)) {
+            return;
+        }
+        
+        checks++;
+        try {
+            state.getAbilities().fire(AbilityTrigger.ENVIRONMENT, check, player, state);
+        } catch (Exception e) {
+            plugin.getLogger().warning("Environment check failed for " + player.getName() + ": " + e);
+        }
+    }
+    
+    private static final class Entry {
+        private final Player player;
+        private int bucket;
+        private boolean queued;
+        private boolean removed;
+        
+        private Entry(Player player) {
+            this.player = player;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.crystalpowers.plugin.abilities;
+
+import com.crystalpowers.plugin.managers.PotionEffectManager;
+import com.crystalpowers.plugin.models.PlayerPowerState;
+import org.bukkit.entity.Player;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+/**
+ * Merling: night vision underwater. Faster swimming comes from the power's swim speed,
+ * which PlayerStatManager turns into Dolphin's Grace.
+ */
+public class MerlingAbilities implements AbilityModule {
+    private static final String ID = "merling";
+    private static final String SIGHT_SOURCE = "merling.sight";
+    private static final PotionEffect SIGHT = new PotionEffect(PotionEffectType.NIGHT_VISION, 600, 0, false, false);
+    
+    // Night vision flashes during its last 10 seconds, so it is refreshed before then
+    private static final int NIGHT_VISION_FLASH_TICKS = 200;
+    
+    private final PotionEffectManager effects;
+    
+    public MerlingAbilities(PotionEffectManager effects) {
+        this.effects = effects;
+    }
+    
+    @Override
+    public void register(AbilityRegistry registry) {
+        registry.register(ID, AbilityTrigger.ENVIRONMENT, this::sight);
+    }
+    
+    private void sight(EnvironmentCheck check, Player player, PlayerPowerState state) {
+        if (player.isInWater()) {
+            effects.want(player, SIGHT_SOURCE, SIGHT, Math.max(NIGHT_VISION_FLASH_TICKS, check.getRefreshTicks()));
+        } else {
+            effects.release(player, SIGHT_SOURCE);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.crystalpowers.plugin.abilities;
+
+import com.crystalpowers.plugin.models.PlayerPowerState;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerMoveEvent;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Decides which move events reach {@link AbilityTrigger#BLOCK_MOVE} handlers. A move passes
+ * only when the player is in another block or world than at their last evaluated move, and
+ * the minimum interval configured for their crystal power has passed since then.
+ * A move held back by the interval is let through by the player's next move once it has passed.
+ *
+ * Main thread only.
+ */
+public class MoveFilter {
+    private final Map<UUID, Position> positions;
+    private final Map<String, Long> powerIntervals;
+    private long defaultIntervalMillis;
+    private long moves;
+    private long sameBlock;
+    private long throttled;
+    
+    public MoveFilter(ConfigurationSection config) {
+        this.positions = new HashMap<>();
+        this.powerIntervals = new HashMap<>();
+        load(config);
+    }
+    
+    /**
+     * Read the minimum intervals from the abilities.move_filter section, which may be null
+     */
+    public void load(ConfigurationSection config) {
+        powerIntervals.clear();
+        defaultIntervalMillis = config != null ? Math.max(0, config.getLong("min_interval_ms", 0)) : 0;
+        
+        ConfigurationSection overrides = config != null ? config.getConfigurationSection("power_intervals") : null;
+        if (overrides != null) {
+            for (String powerId : overrides.getKeys(false)) {
+                powerIntervals.put(powerId.toLowerCase(), Math.max(0, overrides.getLong(powerId)));
+            }
+        }
+        
+        // Cached intervals are resolved again on each player's next move
+        positions.values().forEach(position -> position.state = null);
+    }
+    
+    /**
+     * Whether the move should be evaluated. Records the player's position if it is.
+     */
+    public boolean accept(PlayerMoveEvent event, PlayerPowerState state) {
+        moves++;
+        Location to = event.getTo();
+        if (to == null) {
+            sameBlock++;
+            return false;
+        }
+        
+        Position position = positions.computeIfAbsent(state.getPlayerId(), id -> new Position());
+        if (position.world == to.getWorld() && position.x == to.getBlockX() &&
+            position.y == to.getBlockY() && position.z == to.getBlockZ()) {
+            sameBlock++;
+            return false;
+        }
+        
+        if (position.state != state) {
+            // The power changed or the config was reloaded
+            position.state = state;
+            position.intervalMillis = powerIntervals.getOrDefault(state.getCrystalPower().getId(), defaultIntervalMillis);
+        }
+        
+        if (position.intervalMillis > 0) {
+            long now = System.currentTimeMillis();
+            if (now - position.evaluatedAt < position.intervalMillis) {
+                throttled++;
+                return false;
+            }
+            position.evaluatedAt = now;
+        }
+        
+        position.world = to.getWorld();
+        position.x = to.getBlockX();
+        position.y = to.getBlockY();
+        position.z = to.getBlockZ();
+        return true;
+    }
+    
+    /**
+     * Drop a player's position, e.g. when they quit
+     */
+    public void forget(Player player) {
+        positions.remove(player.getUniqueId());
+    }
+    
+    /**
+     * Fraction of filtered moves that were skipped, 0 before any move was filtered
+     */
+    public double getSkipRatio() {
+        return moves == 0 ? 0 : (double) (sameBlock + throttled) / moves;
+    }
+    
+    /**
+     * Filter statistics, one line per figure
+     */
+    public List<String> getReport() {
+        return List.of(
+            "moves " + moves + ", skipped " + (sameBlock + throttled) + String.format(" (%.1f%%)", getSkipRatio() * 100),
+            "same block " + sameBlock + ", within interval " + throttled
+        );
+    }
+    
+    private static final class Position {
+        private World world;
+        private int x;
+        private int y;
+        private int z;
+        private long evaluatedAt;
+        private PlayerPowerState state;
+        private long intervalMillis;
+    }
+}
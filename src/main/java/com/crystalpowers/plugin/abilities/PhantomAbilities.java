@@ -0,0 +1,99 @@
+package com.crystalpowers.plugin.abilities;
+
+import com.crystalpowers.plugin.managers.LightLevelCache;
+import com.crystalpowers.plugin.managers.PotionEffectManager;
+import com.crystalpowers.plugin.managers.WorldStateManager;
+import com.crystalpowers.plugin.models.PlayerPowerState;
+import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
+import org.bukkit.event.block.Action;
+import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+/**
+ * Phantom: invisible in darkness and while phasing, burns in sunlight, no fall damage
+ */
+public class PhantomAbilities implements AbilityModule {
+    private static final String ID = "phantom";
+    private static final String SHADOW_SOURCE = "phantom.shadow";
+    private static final String PHASE_SOURCE = "phantom.phase";
+    private static final String TOGGLE_SOURCE = "phantom.toggle";
+    private static final PotionEffect SHADOW = new PotionEffect(PotionEffectType.INVISIBILITY, 600, 0, false, false);
+    private static final PotionEffect PHASE = new PotionEffect(PotionEffectType.INVISIBILITY, 40, 0, false, false);
+    // Not renewed, so it wears off after a minute
+    private static final PotionEffect TOGGLE = new PotionEffect(PotionEffectType.INVISIBILITY, 1200, 0, false, false);
+    
+    // Shadow form starts at or below this light level...
+    private static final int SHADOW_ENTER_LIGHT = 4;
+    // ...and only ends at or above this one, so standing at the edge of a light does not flicker
+    private static final int SHADOW_LEAVE_LIGHT = 6;
+    
+    private final WorldStateManager worldStates;
+    private final LightLevelCache lightLevels;
+    private final PotionEffectManager effects;
+    
+    public PhantomAbilities(WorldStateManager worldStates, LightLevelCache lightLevels, PotionEffectManager effects) {
+        this.worldStates = worldStates;
+        this.lightLevels = lightLevels;
+        this.effects = effects;
+    }
+    
+    @Override
+    public void register(AbilityRegistry registry) {
+        registry.register(ID, AbilityTrigger.DAMAGE, CommonAbilities::cancelFallDamage)
+                .register(ID, AbilityTrigger.ENVIRONMENT, this::shadowForm)
+                .register(ID, AbilityTrigger.ENVIRONMENT, this::sunDamage)
+                .register(ID, AbilityTrigger.BLOCK_MOVE, this::phase)
+                .register(ID, AbilityTrigger.INTERACT, this::toggleInvisibility);
+    }
+    
+    private void shadowForm(EnvironmentCheck check, Player player, PlayerPowerState state) {
+        int lightLevel = lightLevels.getLightLevel(player.getLocation());
+        boolean inShadow = effects.isWanted(player, SHADOW_SOURCE);
+        
+        if (lightLevel <= SHADOW_ENTER_LIGHT || (inShadow && lightLevel < SHADOW_LEAVE_LIGHT)) {
+            // Give invisibility in darkness
+            effects.want(player, SHADOW_SOURCE, SHADOW, check.getRefreshTicks());
+        } else {
+            // Remove invisibility in light
+            effects.release(player, SHADOW_SOURCE);
+        }
+    }
+    
+    private void sunDamage(EnvironmentCheck check, Player player, PlayerPowerState state) {
+        if (worldStates.getState(player.getWorld()).isDay() && 
+            lightLevels.getLightFromSky(player.getLocation()) > 10) {
+            // Burn in sunlight
+            player.setFireTicks(check.durationAtLeast(60));
+        }
+    }
+    
+    private void phase(PlayerMoveEvent event, Player player, PlayerPowerState state) {
+        // Phasing through blocks when sneaking
+        if (player.isSneaking()) {
+            effects.want(player, PHASE_SOURCE, PHASE, PHASE.getDuration() / 2);
+        } else {
+            effects.release(player, PHASE_SOURCE);
+        }
+    }
+    
+    private void toggleInvisibility(PlayerInteractEvent event, Player player, PlayerPowerState state) {
+        if (event.getAction() != Action.RIGHT_CLICK_AIR || !player.isSneaking()) {
+            return;
+        }
+        
+        // The toggle still counts as wanted once its minute has worn off
+        boolean toggled = effects.isWanted(player, TOGGLE_SOURCE) && player.hasPotionEffect(PotionEffectType.INVISIBILITY);
+        // Only the toggle's own invisibility is turned off; shadow form and phasing keep theirs
+        effects.release(player, TOGGLE_SOURCE);
+        if (toggled) {
+            player.sendMessage(ChatColor.GRAY + (player.hasPotionEffect(PotionEffectType.INVISIBILITY) ? "Toggle ended, the shadows still hide you" : "Visibility restored"));
+        } else {
+            // Refreshed below its full duration, so a shorter shadow effect is topped up to the minute
+            effects.want(player, TOGGLE_SOURCE, TOGGLE, TOGGLE.getDuration());
+            player.sendMessage(ChatColor.GRAY + "Turned invisible");
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.crystalpowers.plugin.gui.CrystalPowerBookGUI;
 import com.crystalpowers.plugin.models.CrystalPower;
 import com.crystalpowers.plugin.models.PlayerData;
 import org.bukkit.ChatColor;
+import org.bukkit.OfflinePlayer;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -16,6 +17,7 @@ import org.bukkit.inventory.meta.BookMeta;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.UUID;
 
 public class CrystalPowerCommand implements CommandExecutor, TabCompleter {
     private final CrystalPowersPlugin plugin;
@@ -72,6 +74,12 @@ public class CrystalPowerCommand implements CommandExecutor, TabCompleter {
                 break;
             case "reset":
                 handleReset(player);
+                break;
+            case "lookup":
+                handleLookup(player, args);
+                break;
+            case "holders":
+                handleHolders(player, args);
                 break;            
             default:
                 player.sendMessage(ChatColor.RED + "Usage: /crystalpower [select|random|info|details|list|gui|clear|reset|reload]");
@@ -291,6 +299,104 @@ public class CrystalPowerCommand implements CommandExecutor, TabCompleter {
         player.sendMessage(ChatColor.GREEN + "Your crystal power has been reset! You can now choose a new one.");
     }
 
+    private void handleLookup(Player player, String[] args) {
+        if (!player.hasPermission("crystalpowers.admin")) {
+            player.sendMessage(ChatColor.RED + "You don't have permission to use this command!");
+            return;
+        }
+        
+        if (args.length < 2) {
+            player.sendMessage(ChatColor.RED + "Usage: /crystalpower lookup <player|uuid>");
+            return;
+        }
+        
+        OfflinePlayer target = findKnownPlayer(args[1]);
+        if (target == null) {
+            player.sendMessage(ChatColor.RED + "Player '" + args[1] + "' has never joined this server!");
+            return;
+        }
+        
+        String name = target.getName() != null ? target.getName() : args[1];
+        plugin.getPlayerDataManager().getStoredCrystalPowerId(target.getUniqueId()).whenComplete((crystalPowerId, error) ->
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                if (error != null) {
+                    plugin.getLogger().warning("Failed to look up " + name + "'s crystal power: " + error.getMessage());
+                    player.sendMessage(ChatColor.RED + "Could not read " + name + "'s crystal power, see the console for details.");
+                    return;
+                }
+                if (crystalPowerId == null) {
+                    player.sendMessage(ChatColor.YELLOW + name + " has not selected a crystal power.");
+                    return;
+                }
+                
+                CrystalPower crystalPower = plugin.getCrystalPowerManager().getCrystalPower(crystalPowerId);
+                player.sendMessage(ChatColor.YELLOW + name + "'s crystal power: " + ChatColor.GOLD +
+                                  (crystalPower != null ? crystalPower.getName() : crystalPowerId));
+            }));
+    }
+    
+    /**
+     * Resolve a player who has joined this server before, by name or UUID, without the
+     * blocking profile lookup getOfflinePlayer(String) may do for unknown names
+     * @return The player, or null if no such player has joined
+     */
+    private OfflinePlayer findKnownPlayer(String nameOrId) {
+        Player online = plugin.getServer().getPlayerExact(nameOrId);
+        if (online != null) {
+            return online;
+        }
+        
+        try {
+            OfflinePlayer byId = plugin.getServer().getOfflinePlayer(UUID.fromString(nameOrId));
+            return byId.hasPlayedBefore() ? byId : null;
+        } catch (IllegalArgumentException e) {
+            // Not a UUID, look for the name among known players
+        }
+        for (OfflinePlayer known : plugin.getServer().getOfflinePlayers()) {
+            if (nameOrId.equalsIgnoreCase(known.getName())) {
+                return known;
+            }
+        }
+        return null;
+    }
+
+    private void handleHolders(Player player, String[] args) {
+        if (!player.hasPermission("crystalpowers.admin")) {
+            player.sendMessage(ChatColor.RED + "You don't have permission to use this command!");
+            return;
+        }
+        
+        if (args.length < 2) {
+            player.sendMessage(ChatColor.RED + "Usage: /crystalpower holders <power>");
+            return;
+        }
+        
+        CrystalPower crystalPower = plugin.getCrystalPowerManager().getCrystalPower(args[1]);
+        if (crystalPower == null) {
+            player.sendMessage(ChatColor.RED + "Crystal power '" + args[1] + "' not found!");
+            return;
+        }
+        
+        player.sendMessage(ChatColor.GRAY + "Searching for " + crystalPower.getName() + " players...");
+        plugin.getPlayerDataManager().findPlayersWithCrystalPower(crystalPower.getId()).whenComplete((playerIds, error) ->
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                if (error != null) {
+                    player.sendMessage(ChatColor.RED + "Search failed: " + error.getMessage());
+                    return;
+                }
+                
+                player.sendMessage(ChatColor.GOLD + "=== " + crystalPower.getName() + " Players (" + playerIds.size() + ") ===");
+                int shown = Math.min(playerIds.size(), 20);
+                for (int i = 0; i < shown; i++) {
+                    String name = plugin.getServer().getOfflinePlayer(playerIds.get(i)).getName();
+                    player.sendMessage(ChatColor.GRAY + "• " + (name != null ? name : playerIds.get(i).toString()));
+                }
+                if (playerIds.size() > shown) {
+                    player.sendMessage(ChatColor.GRAY + "...and " + (playerIds.size() - shown) + " more");
+                }
+            }));
+    }
+
     private void handleDebug(Player player, String[] args) {
         if (!player.hasPermission("crystalpowers.admin")) {
             player.sendMessage(ChatColor.RED + "You don't have permission to use this command!");
@@ -329,7 +435,30 @@ public class CrystalPowerCommand implements CommandExecutor, TabCompleter {
         }
         
         player.sendMessage(ChatColor.YELLOW + "Game Mode: " + player.getGameMode());
+        var world = plugin.getWorldStateManager().getState(player.getWorld());
+        player.sendMessage(ChatColor.YELLOW + "World: " + (world.isDay() ? "day" : "night") + " (" + world.getTime() + ")" +
+                          (world.isThundering() ? ", thunder" : world.hasStorm() ? ", storm" : ""));
         player.sendMessage(ChatColor.YELLOW + "Available Powers: " + plugin.getCrystalPowerManager().getAllCrystalPowers().size());
+        player.sendMessage(ChatColor.YELLOW + "Move Filter:");
+        for (String line : plugin.getMoveFilter().getReport()) {
+            player.sendMessage(ChatColor.GRAY + "  " + line);
+        }
+        player.sendMessage(ChatColor.YELLOW + "Environment Checks:");
+        for (String line : plugin.getEnvironmentScheduler().getReport()) {
+            player.sendMessage(ChatColor.GRAY + "  " + line);
+        }
+        player.sendMessage(ChatColor.YELLOW + "Light Cache:");
+        for (String line : plugin.getLightLevelCache().getReport()) {
+            player.sendMessage(ChatColor.GRAY + "  " + line);
+        }
+        player.sendMessage(ChatColor.YELLOW + "Ability Effects:");
+        for (String line : plugin.getPotionEffectManager().getReport()) {
+            player.sendMessage(ChatColor.GRAY + "  " + line);
+        }
+        player.sendMessage(ChatColor.YELLOW + "Stat Modifiers:");
+        for (String line : plugin.getPlayerStatManager().getReport()) {
+            player.sendMessage(ChatColor.GRAY + "  " + line);
+        }
     }
 
     @Override
@@ -337,14 +466,14 @@ public class CrystalPowerCommand implements CommandExecutor, TabCompleter {
         List<String> completions = new ArrayList<>();
         
         if (args.length == 1) {
-            String[] subcommands = {"select", "random", "info", "details", "list", "gui", "menu", "test", "reload", "clear", "reset"};
+            String[] subcommands = {"select", "random", "info", "details", "list", "gui", "menu", "test", "reload", "clear", "reset", "lookup", "holders"};
             for (String sub : subcommands) {
                 if (sub.toLowerCase().startsWith(args[0].toLowerCase())) {
                     completions.add(sub);
                 }
             }
         } else if (args.length == 2) {
-            if (args[0].equalsIgnoreCase("select") || args[0].equalsIgnoreCase("details")) {
+            if (args[0].equalsIgnoreCase("select") || args[0].equalsIgnoreCase("details") || args[0].equalsIgnoreCase("holders")) {
                 // Tab complete crystal power names
                 for (CrystalPower crystalPower : plugin.getCrystalPowerManager().getAllCrystalPowers()) {
                     if (crystalPower.getId().toLowerCase().startsWith(args[1].toLowerCase())) {
@@ -1,6 +1,8 @@
 package com.crystalpowers.plugin.commands;
 
 import com.crystalpowers.plugin.CrystalPowersPlugin;
+import com.crystalpowers.plugin.storage.PlayerDataMigration;
+import com.crystalpowers.plugin.storage.PlayerDataReencryption;
 import com.crystalpowers.plugin.utils.EncryptionUtil;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
@@ -11,10 +13,13 @@ import org.bukkit.entity.Player;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 
 public class EncryptionCommand implements CommandExecutor, TabCompleter {
     private final CrystalPowersPlugin plugin;
+    private PlayerDataReencryption activeReencryption;
     
     public EncryptionCommand(CrystalPowersPlugin plugin) {
         this.plugin = plugin;
@@ -45,6 +50,9 @@ public class EncryptionCommand implements CommandExecutor, TabCompleter {
             case "generate-key":
                 handleGenerateKey(sender);
                 break;
+            case "reencrypt":
+                handleReencrypt(sender, args);
+                break;
             case "test":
                 handleTest(sender, args);
                 break;
@@ -65,6 +73,7 @@ public class EncryptionCommand implements CommandExecutor, TabCompleter {
         sender.sendMessage(ChatColor.YELLOW + "/encryption enable" + ChatColor.GRAY + " - Enable encryption");
         sender.sendMessage(ChatColor.YELLOW + "/encryption disable" + ChatColor.GRAY + " - Disable encryption");
         sender.sendMessage(ChatColor.YELLOW + "/encryption generate-key" + ChatColor.GRAY + " - Generate new encryption key");
+        sender.sendMessage(ChatColor.YELLOW + "/encryption reencrypt [cancel]" + ChatColor.GRAY + " - Re-encrypt data still under an old key");
         sender.sendMessage(ChatColor.YELLOW + "/encryption test <text>" + ChatColor.GRAY + " - Test encryption/decryption");
         sender.sendMessage(ChatColor.YELLOW + "/encryption hash <text>" + ChatColor.GRAY + " - Create secure hash");
     }
@@ -82,6 +91,20 @@ public class EncryptionCommand implements CommandExecutor, TabCompleter {
         sender.sendMessage(ChatColor.YELLOW + "Master Password Set: " + 
             (!masterPassword.trim().isEmpty() ? ChatColor.GREEN + "✓ Yes" : ChatColor.RED + "✗ No"));
         
+        if (runtimeInitialized) {
+            List<Integer> versions = EncryptionUtil.getKeyVersions();
+            sender.sendMessage(ChatColor.YELLOW + "Key Version: " + ChatColor.WHITE + EncryptionUtil.getKeyVersion() +
+                (versions.size() > 1 ? ChatColor.GRAY + " (also reading " + versions.stream()
+                    .filter(version -> version != EncryptionUtil.getKeyVersion())
+                    .map(String::valueOf).collect(Collectors.joining(", ")) + ")" : ""));
+            if (activeReencryption != null) {
+                sender.sendMessage(ChatColor.YELLOW + "Re-encryption: " + ChatColor.GREEN + "Running (" +
+                    activeReencryption.getProcessed() + "/" + activeReencryption.getTotal() + ")");
+            } else if (versions.size() > 1) {
+                sender.sendMessage(ChatColor.YELLOW + "Re-encryption: " + ChatColor.RED + "Unfinished - run /encryption reencrypt");
+            }
+        }
+        
         if (configEnabled && runtimeInitialized) {
             sender.sendMessage(ChatColor.GREEN + "🔒 Encryption is ACTIVE - Player data is protected");
         } else {
@@ -108,22 +131,109 @@ public class EncryptionCommand implements CommandExecutor, TabCompleter {
         sender.sendMessage(ChatColor.GRAY + "Existing encrypted data will still be readable until next save.");
     }
     
+    /**
+     * Generate a new key. With encryption running, the key is rotated in place: the old key
+     * moves to encryption.previous-keys, new data uses the new key straight away, and a
+     * background job re-encrypts existing data before the old key is retired.
+     */
     private void handleGenerateKey(CommandSender sender) {
+        if (activeReencryption != null) {
+            sender.sendMessage(ChatColor.RED + "✗ Re-encryption with the current key is still running! Wait for it to finish first.");
+            return;
+        }
+        
         try {
             String newKey = EncryptionUtil.generateSecureRandom(32);
+            
+            if (!EncryptionUtil.isInitialized()) {
+                plugin.getConfig().set("encryption.master-password", newKey);
+                plugin.saveConfig();
+                
+                sender.sendMessage(ChatColor.GREEN + "✓ New encryption key generated!");
+                sender.sendMessage(ChatColor.GOLD + "Key: " + ChatColor.WHITE + newKey);
+                sender.sendMessage(ChatColor.RED + "⚠ IMPORTANT: Save this key safely! If lost, encrypted data cannot be recovered!");
+                sender.sendMessage(ChatColor.YELLOW + "Reload the plugin to apply the new key: /crystalpower reload");
+                return;
+            }
+            
+            // Save the old key before anything is encrypted with the new one
+            int oldVersion = EncryptionUtil.getKeyVersion();
+            int newVersion = Collections.max(EncryptionUtil.getKeyVersions()) + 1;
+            plugin.getConfig().set("encryption.previous-keys." + oldVersion, plugin.getConfig().getString("encryption.master-password"));
             plugin.getConfig().set("encryption.master-password", newKey);
+            plugin.getConfig().set("encryption.key-version", newVersion);
             plugin.saveConfig();
+            EncryptionUtil.rotateKey(newVersion, newKey);
             
-            sender.sendMessage(ChatColor.GREEN + "✓ New encryption key generated!");
+            sender.sendMessage(ChatColor.GREEN + "✓ New encryption key generated and in use (version " + newVersion + ")!");
             sender.sendMessage(ChatColor.GOLD + "Key: " + ChatColor.WHITE + newKey);
             sender.sendMessage(ChatColor.RED + "⚠ IMPORTANT: Save this key safely! If lost, encrypted data cannot be recovered!");
-            sender.sendMessage(ChatColor.YELLOW + "Reload the plugin to apply the new key: /crystalpower reload");
+            sender.sendMessage(ChatColor.GRAY + "The old key stays in encryption.previous-keys until existing data is re-encrypted.");
+            startReencryption(sender);
             
         } catch (Exception e) {
             sender.sendMessage(ChatColor.RED + "✗ Failed to generate new key: " + e.getMessage());
         }
     }
     
+    private void handleReencrypt(CommandSender sender, String[] args) {
+        if (args.length >= 2 && args[1].equalsIgnoreCase("cancel")) {
+            if (activeReencryption == null) {
+                sender.sendMessage(ChatColor.RED + "No re-encryption is running!");
+                return;
+            }
+            activeReencryption.cancel();
+            sender.sendMessage(ChatColor.YELLOW + "Cancelling re-encryption after the current batch...");
+            return;
+        }
+        
+        if (!EncryptionUtil.isInitialized()) {
+            sender.sendMessage(ChatColor.RED + "✗ Encryption is not initialized!");
+            return;
+        }
+        if (activeReencryption != null) {
+            sender.sendMessage(ChatColor.RED + "Re-encryption is already running!");
+            return;
+        }
+        if (EncryptionUtil.getKeyVersions().size() < 2) {
+            sender.sendMessage(ChatColor.GREEN + "✓ All data already uses the current key.");
+            return;
+        }
+        startReencryption(sender);
+    }
+    
+    /**
+     * Re-encrypt every record with the current key in the background, then retire the old keys
+     */
+    private void startReencryption(CommandSender sender) {
+        int recordsPerSecond = plugin.getConfig().getInt("encryption.rotation.records_per_second", 2000);
+        int batchSize = plugin.getConfig().getInt("encryption.rotation.batch_size", 500);
+        ReencryptionListener listener = new ReencryptionListener(sender);
+        PlayerDataReencryption reencryption = new PlayerDataReencryption(plugin.getPlayerDataManager().getStore(),
+            batchSize, recordsPerSecond, listener);
+        
+        activeReencryption = reencryption;
+        sender.sendMessage(ChatColor.GRAY + "Re-encrypting player data with key version " + EncryptionUtil.getKeyVersion() +
+                          (recordsPerSecond > 0 ? " at up to " + recordsPerSecond + " records/s" : "") + "...");
+        
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                reencryption.run();
+            } finally {
+                plugin.getServer().getScheduler().runTask(plugin, () -> activeReencryption = null);
+            }
+        });
+    }
+    
+    /**
+     * Drop the old keys once nothing is encrypted with them anymore
+     */
+    private void retireOldKeys() {
+        EncryptionUtil.retireOldKeys();
+        plugin.getConfig().set("encryption.previous-keys", null);
+        plugin.saveConfig();
+    }
+    
     private void handleTest(CommandSender sender, String[] args) {
         if (!EncryptionUtil.isInitialized()) {
             sender.sendMessage(ChatColor.RED + "✗ Encryption is not initialized!");
@@ -181,9 +291,56 @@ public class EncryptionCommand implements CommandExecutor, TabCompleter {
         }
         
         if (args.length == 1) {
-            completions.addAll(Arrays.asList("status", "enable", "disable", "generate-key", "test", "hash"));
+            completions.addAll(Arrays.asList("status", "enable", "disable", "generate-key", "reencrypt", "test", "hash"));
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("reencrypt")) {
+            completions.add("cancel");
         }
         
         return completions;
     }
+    
+    /**
+     * Relays re-encryption progress to the admin who started it and to the console
+     */
+    private class ReencryptionListener implements PlayerDataMigration.ProgressListener {
+        private final CommandSender sender;
+        
+        private ReencryptionListener(CommandSender sender) {
+            this.sender = sender;
+        }
+        
+        @Override
+        public void onStart(int total) {
+            report(ChatColor.GRAY + "Checking " + total + " player data entries for old keys...");
+        }
+        
+        @Override
+        public void onProgress(int copied, int total, long elapsedMillis) {
+            int percent = total == 0 ? 100 : (int) (copied * 100L / total);
+            long rate = elapsedMillis == 0 ? 0 : copied * 1000L / elapsedMillis;
+            report(ChatColor.GRAY + "Re-encryption " + percent + "% (" + copied + "/" + total + ", " + rate + " records/s)");
+        }
+        
+        @Override
+        public void onComplete(int total, int written, long elapsedMillis) {
+            plugin.getServer().getScheduler().runTask(plugin, EncryptionCommand.this::retireOldKeys);
+            report(ChatColor.GREEN + "Re-encryption complete: re-encrypted " + written + " of " + total + " entries in " +
+                  (elapsedMillis / 1000) + "s. Old keys have been retired.");
+        }
+        
+        @Override
+        public void onCancelled(int copied, int total) {
+            report(ChatColor.YELLOW + "Re-encryption cancelled after " + copied + " of " + total + " entries - old keys are kept until it finishes");
+        }
+        
+        @Override
+        public void onFailed(Throwable error) {
+            report(ChatColor.RED + "Re-encryption failed: " + error.getMessage() + " - old keys are kept, run /encryption reencrypt to retry");
+        }
+        
+        private void report(String message) {
+            plugin.getLogger().info(ChatColor.stripColor(message));
+            plugin.getServer().getScheduler().runTask(plugin, () -> sender.sendMessage(message));
+        }
+    }
 }
@@ -0,0 +1,370 @@
+package com.crystalpowers.plugin.commands;
+
+import com.crystalpowers.plugin.CrystalPowersPlugin;
+import com.crystalpowers.plugin.storage.GroupCommitPlayerDataStore;
+import com.crystalpowers.plugin.storage.PlayerDataMigration;
+import com.crystalpowers.plugin.storage.PlayerDataStore;
+import com.crystalpowers.plugin.storage.PlayerDataStoreDiagnostics;
+import com.crystalpowers.plugin.storage.PlayerDataStoreFactory;
+import com.crystalpowers.plugin.storage.ShadowPlayerDataStore;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+public class StorageCommand implements CommandExecutor, TabCompleter {
+    // Small enough that the diagnostics also exercise journal compaction
+    private static final long VERIFY_JOURNAL_THRESHOLD = 4096;
+    
+    private final CrystalPowersPlugin plugin;
+    private PlayerDataMigration activeMigration;
+    
+    public StorageCommand(CrystalPowersPlugin plugin) {
+        this.plugin = plugin;
+    }
+    
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission("crystalpowers.admin")) {
+            sender.sendMessage(ChatColor.RED + "You don't have permission to use this command!");
+            return true;
+        }
+        
+        if (args.length == 0) {
+            showUsage(sender);
+            return true;
+        }
+        
+        switch (args[0].toLowerCase()) {
+            case "status":
+                handleStatus(sender);
+                break;
+            case "verify":
+                handleVerify(sender, args);
+                break;
+            case "migrate":
+                handleMigrate(sender, args);
+                break;
+            case "shadow":
+                handleShadow(sender);
+                break;
+            default:
+                showUsage(sender);
+                break;
+        }
+        
+        return true;
+    }
+    
+    private void showUsage(CommandSender sender) {
+        sender.sendMessage(ChatColor.GOLD + "=== Player Data Storage ===");
+        sender.sendMessage(ChatColor.YELLOW + "/crystalstorage status" + ChatColor.GRAY + " - Show the active storage backend");
+        sender.sendMessage(ChatColor.YELLOW + "/crystalstorage verify [mode]" + ChatColor.GRAY + " - Run the storage diagnostics against a backend");
+        sender.sendMessage(ChatColor.YELLOW + "/crystalstorage migrate <mode> [records/s]" + ChatColor.GRAY + " - Copy all player data into another backend");
+        sender.sendMessage(ChatColor.YELLOW + "/crystalstorage migrate cancel" + ChatColor.GRAY + " - Stop a running migration");
+        sender.sendMessage(ChatColor.YELLOW + "/crystalstorage shadow" + ChatColor.GRAY + " - Show shadow mode statistics");
+    }
+    
+    private void handleStatus(CommandSender sender) {
+        PlayerDataStore store = plugin.getPlayerDataManager().getStore();
+        GroupCommitPlayerDataStore groupCommit = null;
+        if (store instanceof GroupCommitPlayerDataStore) {
+            groupCommit = (GroupCommitPlayerDataStore) store;
+            store = groupCommit.getDelegate();
+        }
+        ShadowPlayerDataStore shadow = null;
+        if (store instanceof ShadowPlayerDataStore) {
+            shadow = (ShadowPlayerDataStore) store;
+            store = shadow.getPrimary();
+        }
+        
+        sender.sendMessage(ChatColor.GOLD + "=== Storage Status ===");
+        sender.sendMessage(ChatColor.YELLOW + "Mode: " + ChatColor.WHITE + plugin.getConfig().getString("storage.mode", "yaml"));
+        sender.sendMessage(ChatColor.YELLOW + "Backend: " + ChatColor.WHITE + store.getClass().getSimpleName() + " (" + store.getName() + ")");
+        sender.sendMessage(ChatColor.YELLOW + "Encrypted at rest: " + (store.isEncrypted() ? ChatColor.GREEN + "Yes" : ChatColor.RED + "No"));
+        
+        if (groupCommit == null) {
+            sender.sendMessage(ChatColor.YELLOW + "Group commit: " + ChatColor.RED + "Disabled");
+        } else {
+            sender.sendMessage(ChatColor.YELLOW + "Group commit: " + ChatColor.GREEN + groupCommit.getWindowMillis() + "ms window");
+            sender.sendMessage(ChatColor.YELLOW + "Writes: " + ChatColor.WHITE + groupCommit.getCommitCount() +
+                              ChatColor.GRAY + " (" + groupCommit.getCommittedChangeCount() + " player changes)");
+        }
+        List<String> executorReport = plugin.getStorageExecutor().getReport();
+        sender.sendMessage(ChatColor.YELLOW + "Storage queue: " + ChatColor.WHITE + executorReport.get(0));
+        for (String line : executorReport.subList(1, executorReport.size())) {
+            sender.sendMessage(ChatColor.GRAY + "• " + line);
+        }
+        sender.sendMessage(ChatColor.YELLOW + "Cached players: " + ChatColor.WHITE + plugin.getPlayerDataManager().getCachedPlayerCount() +
+                          ChatColor.GRAY + " (" + plugin.getPlayerDataManager().getCacheFootprintBytes() / 1024 + " KB, " +
+                          plugin.getPlayerDataManager().getCacheViewsCreated() + " views created)");
+        sender.sendMessage(ChatColor.YELLOW + "Shadow: " + (shadow != null ? ChatColor.GREEN + shadow.getShadow().getName() : ChatColor.RED + "Disabled"));
+        if (activeMigration != null) {
+            sender.sendMessage(ChatColor.YELLOW + "Migration: " + ChatColor.GREEN + "Running to " + activeMigration.getTarget().getName());
+        }
+    }
+    
+    /**
+     * Run the storage diagnostics against fresh stores in a scratch directory, off the main thread
+     */
+    private void handleVerify(CommandSender sender, String[] args) {
+        List<String> modes = new ArrayList<>();
+        if (args.length >= 2) {
+            if (!PlayerDataStoreFactory.MODES.contains(args[1].toLowerCase())) {
+                sender.sendMessage(ChatColor.RED + "Unknown storage mode! Use one of: " + String.join(", ", PlayerDataStoreFactory.MODES));
+                return;
+            }
+            modes.add(args[1].toLowerCase());
+        } else {
+            modes.addAll(PlayerDataStoreFactory.MODES);
+        }
+        
+        sender.sendMessage(ChatColor.GRAY + "Verifying " + String.join(", ", modes) + " storage...");
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            for (String mode : modes) {
+                File scratchFolder = new File(plugin.getDataFolder(), "storage-verify" + File.separator + mode);
+                List<String> failures;
+                try {
+                    deleteRecursively(scratchFolder.toPath());
+                    failures = new PlayerDataStoreDiagnostics(() ->
+                        PlayerDataStoreFactory.create(mode, scratchFolder, VERIFY_JOURNAL_THRESHOLD, null, plugin.getLogger())).run();
+                    deleteRecursively(scratchFolder.toPath());
+                } catch (IOException e) {
+                    failures = List.of("Could not prepare " + scratchFolder.getPath() + ": " + e.getMessage());
+                }
+                
+                List<String> result = failures;
+                plugin.getServer().getScheduler().runTask(plugin, () -> reportVerification(sender, mode, result));
+            }
+            // Only removed once every scratch folder is gone
+            new File(plugin.getDataFolder(), "storage-verify").delete();
+        });
+    }
+    
+    /**
+     * Stream every record into another backend. When shadow mode is on the copy goes into the
+     * shadow store, which already receives every live change, so no change is lost.
+     */
+    private void handleMigrate(CommandSender sender, String[] args) {
+        if (args.length < 2) {
+            sender.sendMessage(ChatColor.RED + "Usage: /crystalstorage migrate <mode> [records/s] or /crystalstorage migrate cancel");
+            return;
+        }
+        
+        if (args[1].equalsIgnoreCase("cancel")) {
+            if (activeMigration == null) {
+                sender.sendMessage(ChatColor.RED + "No migration is running!");
+                return;
+            }
+            activeMigration.cancel();
+            sender.sendMessage(ChatColor.YELLOW + "Cancelling migration after the current batch...");
+            return;
+        }
+        
+        if (activeMigration != null) {
+            sender.sendMessage(ChatColor.RED + "A migration to " + activeMigration.getTarget().getName() + " is already running!");
+            return;
+        }
+        
+        String mode = args[1].toLowerCase();
+        if (!PlayerDataStoreFactory.MODES.contains(mode)) {
+            sender.sendMessage(ChatColor.RED + "Unknown storage mode! Use one of: " + String.join(", ", PlayerDataStoreFactory.MODES));
+            return;
+        }
+        
+        int recordsPerSecond = plugin.getConfig().getInt("storage.migration.records_per_second", 5000);
+        if (args.length >= 3) {
+            try {
+                recordsPerSecond = Integer.parseInt(args[2]);
+            } catch (NumberFormatException e) {
+                sender.sendMessage(ChatColor.RED + "Invalid rate: " + args[2]);
+                return;
+            }
+        }
+        int batchSize = plugin.getConfig().getInt("storage.migration.batch_size", 500);
+        
+        PlayerDataStore store = plugin.getPlayerDataManager().getStore();
+        if (store instanceof GroupCommitPlayerDataStore) {
+            store = ((GroupCommitPlayerDataStore) store).getDelegate();
+        }
+        
+        MigrationListener listener = new MigrationListener(sender);
+        PlayerDataMigration migration;
+        PlayerDataStore target;
+        boolean ownsTarget;
+        
+        if (store instanceof ShadowPlayerDataStore) {
+            String shadowMode = plugin.getConfig().getString("storage.shadow.mode", "");
+            if (!shadowMode.equalsIgnoreCase(mode)) {
+                sender.sendMessage(ChatColor.RED + "Shadow mode is writing to " + shadowMode + " - migrate to that backend or change storage.shadow.mode");
+                return;
+            }
+            migration = new PlayerDataMigration((ShadowPlayerDataStore) store, batchSize, recordsPerSecond, listener);
+            target = migration.getTarget();
+            ownsTarget = false;
+        } else {
+            String currentMode = plugin.getConfig().getString("storage.mode", "yaml");
+            if (PlayerDataStoreFactory.sharesFile(currentMode, mode)) {
+                sender.sendMessage(ChatColor.RED + "The " + mode + " backend uses the same file as the current " + currentMode + " backend!");
+                return;
+            }
+            
+            long journalCompactThreshold = plugin.getConfig().getLong("storage.journal_compact_threshold_kb", 512) * 1024L;
+            // On a thread of its own, so the copy's writes do not hold up live storage work
+            target = PlayerDataStoreFactory.create(mode, plugin.getDataFolder(), journalCompactThreshold, null, plugin.getLogger());
+            if (target.exists()) {
+                sender.sendMessage(ChatColor.RED + target.getName() + " already exists! Move it away before migrating into it.");
+                return;
+            }
+            migration = new PlayerDataMigration(store, target, batchSize, recordsPerSecond, listener);
+            ownsTarget = true;
+            sender.sendMessage(ChatColor.YELLOW + "Shadow mode is off - changes made after the copy starts will not be in " + target.getName() + ".");
+            sender.sendMessage(ChatColor.YELLOW + "Set storage.shadow.mode to " + mode + " first to migrate without downtime.");
+        }
+        
+        activeMigration = migration;
+        sender.sendMessage(ChatColor.GRAY + "Migrating player data to " + target.getName() +
+                          (recordsPerSecond > 0 ? " at up to " + recordsPerSecond + " records/s" : "") + "...");
+        
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                if (ownsTarget) {
+                    target.open().join();
+                }
+                migration.run();
+            } catch (Exception e) {
+                listener.onFailed(e.getCause() != null ? e.getCause() : e);
+            } finally {
+                if (ownsTarget) {
+                    target.close(30, TimeUnit.SECONDS);
+                }
+                plugin.getServer().getScheduler().runTask(plugin, () -> activeMigration = null);
+            }
+        });
+    }
+    
+    private void handleShadow(CommandSender sender) {
+        PlayerDataStore store = plugin.getPlayerDataManager().getStore();
+        if (store instanceof GroupCommitPlayerDataStore) {
+            store = ((GroupCommitPlayerDataStore) store).getDelegate();
+        }
+        if (!(store instanceof ShadowPlayerDataStore)) {
+            sender.sendMessage(ChatColor.RED + "Shadow mode is disabled! Set storage.shadow.mode in config.yml and restart.");
+            return;
+        }
+        
+        ShadowPlayerDataStore shadow = (ShadowPlayerDataStore) store;
+        sender.sendMessage(ChatColor.GOLD + "=== Shadow Mode: " + shadow.getPrimary().getName() + " -> " + shadow.getShadow().getName() + " ===");
+        for (String line : shadow.getReport()) {
+            sender.sendMessage(ChatColor.GRAY + "• " + line);
+        }
+        if (shadow.getMismatchCount() > 0) {
+            sender.sendMessage(ChatColor.YELLOW + "Mismatches are logged to the console. Run /crystalstorage migrate to backfill the shadow store.");
+        }
+    }
+    
+    private void reportVerification(CommandSender sender, String mode, List<String> failures) {
+        if (failures.isEmpty()) {
+            sender.sendMessage(ChatColor.GREEN + "✓ " + mode + " storage passed all checks");
+            return;
+        }
+        
+        sender.sendMessage(ChatColor.RED + "✗ " + mode + " storage failed " + failures.size() + " checks:");
+        for (String failure : failures) {
+            sender.sendMessage(ChatColor.GRAY + "  - " + failure);
+            plugin.getLogger().warning("Storage diagnostics (" + mode + "): " + failure);
+        }
+    }
+    
+    /**
+     * Relays migration progress to the admin who started it and to the console
+     */
+    private class MigrationListener implements PlayerDataMigration.ProgressListener {
+        private final CommandSender sender;
+        
+        private MigrationListener(CommandSender sender) {
+            this.sender = sender;
+        }
+        
+        @Override
+        public void onStart(int total) {
+            report(ChatColor.GRAY + "Copying " + total + " player data entries...");
+        }
+        
+        @Override
+        public void onProgress(int copied, int total, long elapsedMillis) {
+            int percent = total == 0 ? 100 : (int) (copied * 100L / total);
+            long rate = elapsedMillis == 0 ? 0 : copied * 1000L / elapsedMillis;
+            report(ChatColor.GRAY + "Migration " + percent + "% (" + copied + "/" + total + ", " + rate + " records/s)");
+        }
+        
+        @Override
+        public void onComplete(int total, int written, long elapsedMillis) {
+            report(ChatColor.GREEN + "Migration complete: copied " + written + " of " + total + " entries in " + (elapsedMillis / 1000) + "s" +
+                  (written < total ? " (" + (total - written) + " already up to date from shadow writes)" : ""));
+            report(ChatColor.GREEN + "Switch storage.mode to the new backend and restart to finish the move.");
+        }
+        
+        @Override
+        public void onCancelled(int copied, int total) {
+            report(ChatColor.YELLOW + "Migration cancelled after " + copied + " of " + total + " entries");
+        }
+        
+        @Override
+        public void onFailed(Throwable error) {
+            report(ChatColor.RED + "Migration failed: " + error.getMessage());
+        }
+        
+        private void report(String message) {
+            plugin.getLogger().info(ChatColor.stripColor(message));
+            plugin.getServer().getScheduler().runTask(plugin, () -> sender.sendMessage(message));
+        }
+    }
+    
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path file : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+    
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        List<String> completions = new ArrayList<>();
+        
+        if (args.length == 1) {
+            for (String sub : new String[]{"status", "verify", "migrate", "shadow"}) {
+                if (sub.startsWith(args[0].toLowerCase())) {
+                    completions.add(sub);
+                }
+            }
+        } else if (args.length == 2 && (args[0].equalsIgnoreCase("verify") || args[0].equalsIgnoreCase("migrate"))) {
+            for (String mode : PlayerDataStoreFactory.MODES) {
+                if (mode.startsWith(args[1].toLowerCase())) {
+                    completions.add(mode);
+                }
+            }
+            if (args[0].equalsIgnoreCase("migrate") && "cancel".startsWith(args[1].toLowerCase())) {
+                completions.add("cancel");
+            }
+        }
+        
+        return completions;
+    }
+}
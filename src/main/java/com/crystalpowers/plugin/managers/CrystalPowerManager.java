@@ -1,6 +1,14 @@
 package com.crystalpowers.plugin.managers;
 
 import com.crystalpowers.plugin.CrystalPowersPlugin;
+import com.crystalpowers.plugin.abilities.AbilityRegistry;
+import com.crystalpowers.plugin.abilities.ArachnidAbilities;
+import com.crystalpowers.plugin.abilities.AvianAbilities;
+import com.crystalpowers.plugin.abilities.CommonAbilities;
+import com.crystalpowers.plugin.abilities.ElytrianAbilities;
+import com.crystalpowers.plugin.abilities.EnderianAbilities;
+import com.crystalpowers.plugin.abilities.MerlingAbilities;
+import com.crystalpowers.plugin.abilities.PhantomAbilities;
 import com.crystalpowers.plugin.models.CrystalPower;
 import org.bukkit.Material;
 import org.bukkit.potion.PotionEffectType;
@@ -15,16 +23,20 @@ import java.util.Random;
 public class CrystalPowerManager {
     private final CrystalPowersPlugin plugin;
     private final Map<String, CrystalPower> crystalPowers;
+    private final AbilityRegistry abilityRegistry;
     private final Random random;
     
     public CrystalPowerManager(CrystalPowersPlugin plugin) {
         this.plugin = plugin;
         this.crystalPowers = new HashMap<>();
+        this.abilityRegistry = new AbilityRegistry();
         this.random = new Random();
         loadDefaultCrystalPowers();
     }
       
     private void loadDefaultCrystalPowers() {
+        abilityRegistry.register(new CommonAbilities(plugin.getWorldStateManager(), plugin.getLightLevelCache(), plugin.getPlayerStatManager()));
+        
         // Human - Balanced crystal power
         CrystalPower human = new CrystalPower("human", "Human", "A balanced crystal power with no special abilities but also no weaknesses.", Material.PLAYER_HEAD)
                 .addPositive("§aBalanced stats")
@@ -46,6 +58,7 @@ public class CrystalPowerManager {
                 .setMaxHealth(16)
                 .addWeakTo(Material.ARROW);
         crystalPowers.put("avian", avian);
+        abilityRegistry.register(new AvianAbilities());
           
         // Enderian - Teleporting crystal power
         CrystalPower enderian = new CrystalPower("enderian", "Enderian", "Mysterious beings from the End with teleportation abilities.", Material.ENDER_PEARL)
@@ -61,6 +74,7 @@ public class CrystalPowerManager {
                 .setTakesDamageFromWater(true);
         enderian.addPermanentEffect(PotionEffectType.NIGHT_VISION, 0);
         crystalPowers.put("enderian", enderian);
+        abilityRegistry.register(new EnderianAbilities(plugin.getWorldStateManager()));
         
         // Arachnid - Spider-like crystal power
         CrystalPower arachnid = new CrystalPower("arachnid", "Arachnid", "Spider-like beings who can climb walls and see in the dark.", Material.SPIDER_EYE)
@@ -77,6 +91,7 @@ public class CrystalPowerManager {
                 .addWeakTo(Material.IRON_SWORD); // Represents Bane of Arthropods weakness
         arachnid.addPermanentEffect(PotionEffectType.NIGHT_VISION, 0);
         crystalPowers.put("arachnid", arachnid);
+        abilityRegistry.register(new ArachnidAbilities());
         
         // Merling - Water-based crystal power
         CrystalPower merling = new CrystalPower("merling", "Merling", "Aquatic beings who thrive in water but struggle on land.", Material.TROPICAL_FISH)
@@ -88,12 +103,12 @@ public class CrystalPowerManager {
                 .addAbility("§6Water Breathing: Never drown")
                 .addAbility("§6Aqua Affinity: Mine faster underwater");        merling.getProperties()
                 .setCanBreatheUnderwater(true)
-                .setSwimSpeed(1.5f)
+                .setSwimSpeed(1.5f) // Only switches on Dolphin's Grace in water, see PlayerStatManager
                 .setLandSpeed(0.8f)
-                .addPotionEffect(PotionEffectType.WATER_BREATHING, 0)
-                .addPotionEffect(PotionEffectType.DOLPHINS_GRACE, 1); 
+                .addPotionEffect(PotionEffectType.WATER_BREATHING, 0);
         merling.addPermanentEffect(PotionEffectType.WATER_BREATHING, 0);
         crystalPowers.put("merling", merling);
+        abilityRegistry.register(new MerlingAbilities(plugin.getPotionEffectManager()));
         
         // Elytrian - Advanced flying crystal power
         CrystalPower elytrian = new CrystalPower("elytrian", "Elytrian", "Masters of the sky with natural elytra abilities.", Material.ELYTRA)
@@ -110,6 +125,7 @@ public class CrystalPowerManager {
                 .setCanWearChestplate(false)
                 .setMaxHealth(18);
         crystalPowers.put("elytrian", elytrian);
+        abilityRegistry.register(new ElytrianAbilities(plugin));
         
         // Phantom - Phasing crystal power
         CrystalPower phantom = new CrystalPower("phantom", "Phantom", "Ghostly beings who can phase through walls but are vulnerable to light.", Material.PHANTOM_MEMBRANE)
@@ -125,6 +141,7 @@ public class CrystalPowerManager {
                 .setInvisibleInDarkness(true)
                 .setMaxHealth(14);
         crystalPowers.put("phantom", phantom);
+        abilityRegistry.register(new PhantomAbilities(plugin.getWorldStateManager(), plugin.getLightLevelCache(), plugin.getPotionEffectManager()));
         
         plugin.getLogger().info("Loaded " + crystalPowers.size() + " crystal powers");
     }
@@ -146,12 +163,20 @@ public class CrystalPowerManager {
         return powerList.get(random.nextInt(powerList.size()));
     }
     
+    /**
+     * Handlers implementing the abilities of every crystal power
+     */
+    public AbilityRegistry getAbilityRegistry() {
+        return abilityRegistry;
+    }
+    
     public boolean crystalPowerExists(String id) {
         return crystalPowers.containsKey(id.toLowerCase());
     }
     
     public void reloadCrystalPowers() {
         crystalPowers.clear();
+        abilityRegistry.clear();
         loadDefaultCrystalPowers();
         plugin.getLogger().info("Reloaded crystal powers");
     }
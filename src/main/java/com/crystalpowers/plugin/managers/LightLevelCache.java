@@ -0,0 +1,398 @@
+package com.crystalpowers.plugin.managers;
+
+import com.crystalpowers.plugin.CrystalPowersPlugin;
+import com.crystalpowers.plugin.models.WorldState;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Short-lived cache of light samples by block position, so players standing near each
+ * other share lookups. Samples are grouped by chunk section (16x16x16 blocks). Placing or
+ * breaking a block drops the samples of its section and the sections around it, which
+ * covers everything a torch can light; the time to live covers other light changes.
+ * Light levels include daylight, so they also expire at sunrise and sunset.
+ * Sections are kept in an open-addressing table keyed by the packed section position, and
+ * each section keeps its samples in small parallel arrays, so lookups box nothing.
+ *
+ * Main thread only.
+ */
+public class LightLevelCache implements Listener {
+    private static final long SWEEP_INTERVAL_TICKS = 600L;
+    
+    private final CrystalPowersPlugin plugin;
+    private final Map<UUID, SectionTable> worlds;
+    private long lightLevelTtlMillis;
+    private long skyLightTtlMillis;
+    private BukkitTask sweepTask;
+    private long hits;
+    private long misses;
+    private long invalidations;
+    
+    public LightLevelCache(CrystalPowersPlugin plugin, ConfigurationSection config) {
+        this.plugin = plugin;
+        this.worlds = new HashMap<>();
+        load(config);
+    }
+    
+    /**
+     * Read the times to live from the abilities.light_cache section, which may be null,
+     * and drop every sample
+     */
+    public void load(ConfigurationSection config) {
+        lightLevelTtlMillis = config != null ? Math.max(0, config.getLong("light_level_ttl_ms", 3000)) : 3000;
+        skyLightTtlMillis = config != null ? Math.max(0, config.getLong("sky_light_ttl_ms", 10000)) : 10000;
+        worlds.clear();
+    }
+    
+    /**
+     * Start sweeping out expired samples, and drop a world's light levels when day or night begins
+     */
+    public void start() {
+        if (sweepTask == null) {
+            plugin.getWorldStateManager().subscribe(WorldState.Transition.DAY_BEGAN, this::invalidateWorld);
+            plugin.getWorldStateManager().subscribe(WorldState.Transition.NIGHT_BEGAN, this::invalidateWorld);
+            sweepTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::sweep, SWEEP_INTERVAL_TICKS, SWEEP_INTERVAL_TICKS);
+        }
+    }
+    
+    public void stop() {
+        if (sweepTask != null) {
+            sweepTask.cancel();
+            sweepTask = null;
+        }
+    }
+    
+    /**
+     * Light level at a location, as {@link Block#getLightLevel()}
+     */
+    public int getLightLevel(Location location) {
+        long now = System.currentTimeMillis();
+        Section section = section(location);
+        int index = section.indexOf(position(location));
+        if (section.lightLevels[index] >= 0 && now < section.lightLevelExpiresAt[index]) {
+            hits++;
+            return section.lightLevels[index];
+        }
+        
+        misses++;
+        section.lightLevels[index] = (byte) block(location).getLightLevel();
+        section.lightLevelExpiresAt[index] = now + lightLevelTtlMillis;
+        return section.lightLevels[index];
+    }
+    
+    /**
+     * Sky light at a location, as {@link Block#getLightFromSky()}
+     */
+    public int getLightFromSky(Location location) {
+        long now = System.currentTimeMillis();
+        Section section = section(location);
+        int index = section.indexOf(position(location));
+        if (section.skyLights[index] >= 0 && now < section.skyLightExpiresAt[index]) {
+            hits++;
+            return section.skyLights[index];
+        }
+        
+        misses++;
+        section.skyLights[index] = (byte) block(location).getLightFromSky();
+        section.skyLightExpiresAt[index] = now + skyLightTtlMillis;
+        return section.skyLights[index];
+    }
+    
+    /**
+     * Fraction of lookups answered from the cache, 0 before any lookup
+     */
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+    
+    /**
+     * Cache statistics, one line per figure
+     */
+    public List<String> getReport() {
+        int sections = 0;
+        int samples = 0;
+        for (SectionTable world : worlds.values()) {
+            sections += world.size;
+            for (Section section : world.sections) {
+                if (section != null) {
+                    samples += section.size;
+                }
+            }
+        }
+        return List.of(
+            "lookups " + (hits + misses) + ", hits " + hits + String.format(" (%.1f%%)", getHitRate() * 100),
+            samples + " samples in " + sections + " sections, " + invalidations + " invalidated",
+            "ttl " + lightLevelTtlMillis + " ms light level, " + skyLightTtlMillis + " ms sky light"
+        );
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent event) {
+        invalidate(event.getBlock());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event) {
+        invalidate(event.getBlock());
+    }
+    
+    @EventHandler
+    public void onWorldUnload(WorldUnloadEvent event) {
+        worlds.remove(event.getWorld().getUID());
+    }
+    
+    /**
+     * Drop the samples of a block's section and its neighbours
+     */
+    private void invalidate(Block block) {
+        SectionTable world = worlds.get(block.getWorld().getUID());
+        if (world == null || world.size == 0) {
+            return;
+        }
+        
+        int sectionX = block.getX() >> 4;
+        int sectionY = block.getY() >> 4;
+        int sectionZ = block.getZ() >> 4;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    if (world.remove(sectionKey(sectionX + dx, sectionY + dy, sectionZ + dz))) {
+                        invalidations++;
+                    }
+                }
+            }
+        }
+    }
+    
+    private void invalidateWorld(WorldState state) {
+        SectionTable world = worlds.get(state.getWorld().getUID());
+        if (world != null) {
+            for (Section section : world.sections) {
+                if (section != null) {
+                    Arrays.fill(section.lightLevels, 0, section.size, (byte) -1);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Remove expired samples and empty sections
+     */
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        for (SectionTable world : worlds.values()) {
+            world.sweep(now);
+        }
+    }
+    
+    private Section section(Location location) {
+        long key = sectionKey(location.getBlockX() >> 4, location.getBlockY() >> 4, location.getBlockZ() >> 4);
+        return worlds.computeIfAbsent(location.getWorld().getUID(), id -> new SectionTable(SectionTable.MIN_CAPACITY))
+            .getOrCreate(key);
+    }
+    
+    /**
+     * Index of a block within its section
+     */
+    private static short position(Location location) {
+        return (short) (((location.getBlockY() & 15) << 8) | ((location.getBlockZ() & 15) << 4) | (location.getBlockX() & 15));
+    }
+    
+    private static Block block(Location location) {
+        World world = location.getWorld();
+        return world.getBlockAt(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+    
+    private static long sectionKey(int sectionX, int sectionY, int sectionZ) {
+        return ((long) sectionX & 0x3FFFFF) << 42 | ((long) sectionZ & 0x3FFFFF) << 20 | (sectionY & 0xFFFFF);
+    }
+    
+    /**
+     * Open-addressing table of one world's sections keyed by {@link #sectionKey}.
+     * A null section marks an empty slot, since 0 is a valid key.
+     */
+    private static final class SectionTable {
+        private static final int MIN_CAPACITY = 16;
+        
+        private long[] keys;
+        private Section[] sections;
+        private int size;
+        
+        private SectionTable(int capacity) {
+            this.keys = new long[capacity];
+            this.sections = new Section[capacity];
+        }
+        
+        private Section getOrCreate(long key) {
+            int slot = find(key);
+            if (sections[slot] != null) {
+                return sections[slot];
+            }
+            
+            // Grow at 75% load to keep probe runs short
+            if ((size + 1) * 4L > keys.length * 3L) {
+                rehash(keys.length * 2);
+                slot = find(key);
+            }
+            keys[slot] = key;
+            sections[slot] = new Section();
+            size++;
+            return sections[slot];
+        }
+        
+        private boolean remove(long key) {
+            int slot = find(key);
+            if (sections[slot] == null) {
+                return false;
+            }
+            
+            // Backward-shift deletion, so lookups never need tombstones
+            int mask = keys.length - 1;
+            int gap = slot;
+            int next = (gap + 1) & mask;
+            while (sections[next] != null) {
+                int home = hash(keys[next]) & mask;
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    keys[gap] = keys[next];
+                    sections[gap] = sections[next];
+                    gap = next;
+                }
+                next = (next + 1) & mask;
+            }
+            sections[gap] = null;
+            size--;
+            return true;
+        }
+        
+        /**
+         * Drop expired samples, then rebuild the table without the sections left empty
+         */
+        private void sweep(long now) {
+            int live = 0;
+            for (Section section : sections) {
+                if (section != null && section.removeExpired(now) > 0) {
+                    live++;
+                }
+            }
+            
+            int capacity = MIN_CAPACITY;
+            while (live * 4L > capacity * 3L) {
+                capacity *= 2;
+            }
+            rehash(capacity);
+        }
+        
+        /**
+         * Slot holding the key, or the empty slot where it would go
+         */
+        private int find(long key) {
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (sections[slot] != null && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+        
+        /**
+         * Move every non-empty section into new arrays of the given capacity
+         */
+        private void rehash(int capacity) {
+            long[] oldKeys = keys;
+            Section[] oldSections = sections;
+            keys = new long[capacity];
+            sections = new Section[capacity];
+            size = 0;
+            
+            for (int i = 0; i < oldSections.length; i++) {
+                if (oldSections[i] != null && oldSections[i].size > 0) {
+                    int slot = find(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    sections[slot] = oldSections[i];
+                    size++;
+                }
+            }
+        }
+        
+        private static int hash(long key) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32));
+        }
+    }
+    
+    /**
+     * Samples of one chunk section in parallel arrays, found by a linear scan - a section
+     * rarely holds more than a few dozen, one per block a player stood in. -1 means no sample.
+     */
+    private static final class Section {
+        private static final int MIN_CAPACITY = 8;
+        
+        private short[] positions = new short[MIN_CAPACITY];
+        private byte[] lightLevels = new byte[MIN_CAPACITY];
+        private byte[] skyLights = new byte[MIN_CAPACITY];
+        private long[] lightLevelExpiresAt = new long[MIN_CAPACITY];
+        private long[] skyLightExpiresAt = new long[MIN_CAPACITY];
+        private int size;
+        
+        /**
+         * Index of a block's samples, adding an empty entry if there is none
+         */
+        private int indexOf(short position) {
+            for (int i = 0; i < size; i++) {
+                if (positions[i] == position) {
+                    return i;
+                }
+            }
+            
+            if (size == positions.length) {
+                int capacity = size * 2;
+                positions = Arrays.copyOf(positions, capacity);
+                lightLevels = Arrays.copyOf(lightLevels, capacity);
+                skyLights = Arrays.copyOf(skyLights, capacity);
+                lightLevelExpiresAt = Arrays.copyOf(lightLevelExpiresAt, capacity);
+                skyLightExpiresAt = Arrays.copyOf(skyLightExpiresAt, capacity);
+            }
+            positions[size] = position;
+            lightLevels[size] = -1;
+            skyLights[size] = -1;
+            return size++;
+        }
+        
+        /**
+         * Compact away entries whose samples have both expired
+         * @return Number of entries left
+         */
+        private int removeExpired(long now) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (now >= lightLevelExpiresAt[i] && now >= skyLightExpiresAt[i]) {
+                    continue;
+                }
+                positions[kept] = positions[i];
+                lightLevels[kept] = lightLevels[i];
+                skyLights[kept] = skyLights[i];
+                lightLevelExpiresAt[kept] = lightLevelExpiresAt[i];
+                skyLightExpiresAt[kept] = skyLightExpiresAt[i];
+                kept++;
+            }
+            size = kept;
+            return kept;
+        }
+    }
+}
@@ -3,124 +3,494 @@ package com.crystalpowers.plugin.managers;
 import com.crystalpowers.plugin.CrystalPowersPlugin;
 import com.crystalpowers.plugin.models.PlayerData;
 import com.crystalpowers.plugin.models.CrystalPower;
+import com.crystalpowers.plugin.models.PlayerPowerState;
+import com.crystalpowers.plugin.storage.ParallelPlayerDataLoader;
+import com.crystalpowers.plugin.storage.PlayerDataJournal;
+import com.crystalpowers.plugin.storage.PlayerDataStore;
+import com.crystalpowers.plugin.storage.PlayerDataStoreFactory;
+import com.crystalpowers.plugin.storage.YamlPlayerDataReader;
 import com.crystalpowers.plugin.utils.EncryptionUtil;
-import org.bukkit.configuration.file.FileConfiguration;
-import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
-import org.bukkit.attribute.Attribute;
 import org.bukkit.GameMode;
 import org.bukkit.Material;
 import org.bukkit.ChatColor;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.potion.PotionEffect;
 
+import org.bukkit.scheduler.BukkitTask;
+
 import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 public class PlayerDataManager {
+    private static final int CONVERT_CHUNK_SIZE = 4096;
+    
     private final CrystalPowersPlugin plugin;
-    private final Map<UUID, PlayerData> playerDataMap;
-    private final File dataFile;
-    private FileConfiguration dataConfig;
+    private final PlayerDataTable playerDataTable;
+    private final Map<UUID, Long> quitTimes;
+    private final Map<UUID, CompletableFuture<PlayerData>> pendingLoads;
+    // Resolved powers of online players, null for players without one. Main thread only.
+    private final Map<UUID, PlayerPowerState> powerStates;
+    private final PlayerDataStore store;
+    private final long idleTtlMillis;
+    private final int maxCacheSize;
+    private final long prefetchTimeoutMillis;
+    private BukkitTask flushTask;
+    private BukkitTask evictionTask;
     
     public PlayerDataManager(CrystalPowersPlugin plugin) {
         this.plugin = plugin;
-        this.playerDataMap = new HashMap<>();
-        this.dataFile = new File(plugin.getDataFolder(), "playerdata.yml");
+        this.playerDataTable = new PlayerDataTable(plugin.getCrystalPowerManager().getAllCrystalPowers().stream()
+            .map(CrystalPower::getId)
+            .collect(Collectors.toList()));
+        this.quitTimes = new LinkedHashMap<>();
+        this.pendingLoads = new ConcurrentHashMap<>();
+        this.powerStates = new HashMap<>();
+        this.store = PlayerDataStoreFactory.create(plugin.getConfig().getConfigurationSection("storage"), plugin.getDataFolder(),
+            plugin.getStorageExecutor(), plugin.getLogger());
+        this.idleTtlMillis = plugin.getConfig().getLong("storage.cache.idle_ttl_minutes", 10) * 60_000L;
+        this.maxCacheSize = plugin.getConfig().getInt("storage.cache.max_size", 1000);
+        this.prefetchTimeoutMillis = plugin.getConfig().getLong("storage.prefetch_timeout_ms", 2000);
+        
         loadData();
+        startWriteBehindTask();
+        startEvictionTask();
     }
     
+    /**
+     * Open the configured store. No player records are loaded here - they are
+     * read on demand when a player logs in.
+     */
     private void loadData() {
-        if (!dataFile.exists()) {
-            try {
-                dataFile.getParentFile().mkdirs();
-                dataFile.createNewFile();
-            } catch (IOException e) {
-                plugin.getLogger().severe("Could not create playerdata.yml file!");
-                return;
-            }
+        long start = System.currentTimeMillis();
+        
+        if (EncryptionUtil.isInitialized() && !store.isEncrypted()) {
+            plugin.getLogger().severe("Encryption is enabled but the " + plugin.getConfig().getString("storage.mode") + " storage mode keeps crystal powers unencrypted in " +
+                                      store.getName() + " - switch storage.mode to yaml or journal to encrypt player data");
         }
         
-        dataConfig = YamlConfiguration.loadConfiguration(dataFile);
-        
-        // Load existing player data
-        if (dataConfig.getConfigurationSection("players") != null) {
-            for (String uuidString : dataConfig.getConfigurationSection("players").getKeys(false)) {
-                try {                    
-                    UUID uuid = UUID.fromString(uuidString);
-                    PlayerData data = new PlayerData(uuid);
-                    
-                    String crystalPowerId = dataConfig.getString("players." + uuidString + ".crystalpower");
-                    if (crystalPowerId != null) {
-                        // Try to decrypt crystal power ID if encryption is enabled
-                        if (EncryptionUtil.isInitialized()) {
-                            try {
-                                crystalPowerId = EncryptionUtil.decrypt(crystalPowerId);
-                            } catch (Exception e) {
-                                plugin.getLogger().warning("Failed to decrypt crystal power for player " + uuid + ": " + e.getMessage());
-                                continue;
-                            }
-                        }
-                        data.setCrystalPowerId(crystalPowerId);
-                    }
-                    
-                    playerDataMap.put(uuid, data);
-                } catch (IllegalArgumentException e) {
-                    plugin.getLogger().warning("Invalid UUID in playerdata.yml: " + uuidString);
-                }
-            }
+        // First start with a new backend - convert the existing playerdata.yml
+        File legacyFile = new File(plugin.getDataFolder(), "playerdata.yml");
+        boolean convert = !store.getName().equals(legacyFile.getName()) && !store.exists() && legacyFile.exists();
+        
+        try {
+            store.open().join();
+        } catch (CompletionException e) {
+            plugin.getLogger().severe("Could not open " + store.getName() + ": " + e.getCause().getMessage());
+            return;
+        }
+        
+        if (convert) {
+            convertFromYaml(legacyFile);
         }
         
-        plugin.getLogger().info("Loaded " + playerDataMap.size() + " player data entries");
+        plugin.getLogger().info("Player data store ready in " + (System.currentTimeMillis() - start) + "ms");
     }
     
-    public void saveData() {
-        for (PlayerData data : playerDataMap.values()) {
-            String uuidString = data.getPlayerId().toString();
-            
-            if (data.hasSelectedCrystalPower()) {
-                String crystalPowerId = data.getCrystalPowerId();
-                
-                // Encrypt crystal power ID if encryption is enabled
-                if (EncryptionUtil.isInitialized()) {
+    /**
+     * Stream playerdata.yml into the new store. Entries are decrypted in chunks as they are
+     * read, so the only full copy in memory is the decoded records handed to the store.
+     */
+    private void convertFromYaml(File legacyFile) {
+        long start = System.currentTimeMillis();
+        ParallelPlayerDataLoader loader = new ParallelPlayerDataLoader(plugin.getLogger());
+        Map<UUID, String> records = new HashMap<>();
+        Map<String, String> chunk = new HashMap<>();
+        
+        try {
+            // A file encrypted as a whole holds plain values, which must not be decrypted again
+            boolean plainValues = EncryptionUtil.isEncryptedStream(legacyFile);
+            YamlPlayerDataReader.read(legacyFile, (uuidString, storedValue) -> {
+                if (plainValues) {
                     try {
-                        crystalPowerId = EncryptionUtil.encrypt(crystalPowerId);
-                    } catch (Exception e) {
-                        plugin.getLogger().severe("Failed to encrypt crystal power for player " + data.getPlayerId() + ": " + e.getMessage());
-                        continue;
+                        records.put(UUID.fromString(uuidString), storedValue);
+                    } catch (IllegalArgumentException e) {
+                        plugin.getLogger().warning("Invalid UUID in player data: " + uuidString);
                     }
+                    return;
                 }
-                
-                dataConfig.set("players." + uuidString + ".crystalpower", crystalPowerId);
+                chunk.put(uuidString, storedValue);
+                if (chunk.size() >= CONVERT_CHUNK_SIZE) {
+                    records.putAll(loader.decode(chunk));
+                    chunk.clear();
+                }
+            });
+            records.putAll(loader.decode(chunk));
+            chunk.clear();
+            
+            // Changes journaled since the last compaction win over the snapshot
+            File journalFile = new File(plugin.getDataFolder(), "playerdata.journal");
+            if (journalFile.exists()) {
+                PlayerDataJournal journal = new PlayerDataJournal(journalFile, plugin.getLogger());
+                journal.replay((uuid, storedValue) -> chunk.put(uuid.toString(), storedValue));
+                journal.close();
+                records.putAll(loader.decode(chunk));
             }
+            
+            store.saveAll(records).join();
+            plugin.getLogger().info("Converted " + records.size() + " player data entries from playerdata.yml to " + store.getName() +
+                                   " in " + (System.currentTimeMillis() - start) + "ms");
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not convert playerdata.yml to " + store.getName() + ": " + e.getMessage());
+        } catch (CompletionException e) {
+            plugin.getLogger().severe("Could not convert playerdata.yml to " + store.getName() + ": " + e.getCause().getMessage());
         }
-        
+    }
+    
+    /**
+     * Read a single player's record from the underlying store
+     * @return The player's data, or null if the store has no record of them
+     * @throws CompletionException If the record could not be read - the player may well have one
+     */
+    private PlayerData loadFromStore(UUID playerId) {
         try {
-            dataConfig.save(dataFile);
-        } catch (IOException e) {
-            plugin.getLogger().severe("Could not save playerdata.yml file!");
+            return store.load(playerId).join();
+        } catch (CompletionException e) {
+            plugin.getLogger().warning("Failed to load player data for " + playerId + ": " + e.getCause().getMessage());
+            throw e;
         }
     }
     
+    /**
+     * Queue an asynchronous flush of every record changed since the last write.
+     * The store applies writes in order, so no locking is needed here. If the storage
+     * queue is full the changes stay dirty and go out with the next flush.
+     */
+    public void saveData() {
+        Map<UUID, String> dirtyRecords = collectDirtyRecords();
+        if (dirtyRecords.isEmpty()) {
+            return;
+        }
+        
+        store.saveAll(dirtyRecords).whenComplete((result, error) -> {
+            if (error == null) {
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof RejectedExecutionException && plugin.isEnabled()) {
+                plugin.getLogger().warning("Storage is falling behind (" + cause.getMessage() + ") - deferring " + dirtyRecords.size() + " changes to the next flush");
+            } else {
+                plugin.getLogger().severe("Could not save " + store.getName() + "! Retrying " + dirtyRecords.size() + " changes on next flush: " + cause.getMessage());
+            }
+            requeue(dirtyRecords);
+        });
+    }
+    
+    /**
+     * Stop the background writer and synchronously flush remaining changes.
+     * Waits at most storage.shutdown_flush_timeout seconds for pending writes.
+     */
     public void saveAllData() {
-        saveData();
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        if (evictionTask != null) {
+            evictionTask.cancel();
+            evictionTask = null;
+        }
+        
+        Map<UUID, String> dirtyRecords = collectDirtyRecords();
+        long timeoutSeconds = plugin.getConfig().getLong("storage.shutdown_flush_timeout", 10);
+        
+        try {
+            // Queued behind any in-flight flush, so this completes once everything is written
+            store.saveAll(dirtyRecords).get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            plugin.getLogger().severe("Timed out waiting for pending player data writes! " + dirtyRecords.size() + " changes may not have been saved.");
+        } catch (ExecutionException e) {
+            plugin.getLogger().severe("Could not save " + store.getName() + "! " + dirtyRecords.size() + " changes were not saved: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            plugin.getLogger().severe("Interrupted while flushing player data! " + dirtyRecords.size() + " changes may not have been saved.");
+        }
+        
+        store.close(timeoutSeconds, TimeUnit.SECONDS);
+    }
+    
+    private void startWriteBehindTask() {
+        long intervalTicks = Math.max(1, plugin.getConfig().getLong("storage.save_interval", 30)) * 20L;
+        flushTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::saveData, intervalTicks, intervalTicks);
+    }
+    
+    private void startEvictionTask() {
+        // Check for idle entries every minute
+        evictionTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::evictIdlePlayers, 1200L, 1200L);
+    }
+    
+    /**
+     * Drop cached data of players who left more than storage.cache.idle_ttl_minutes ago,
+     * then evict the longest-gone players while the cache is over storage.cache.max_size.
+     * Online players and records with unsaved changes are never evicted.
+     */
+    private void evictIdlePlayers() {
+        // Drop prefetches that were never consumed - the login was aborted or the data was already cached
+        pendingLoads.entrySet().removeIf(entry -> entry.getValue().isDone() &&
+            (plugin.getServer().getPlayer(entry.getKey()) == null || playerDataTable.contains(entry.getKey())));
+        
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<UUID, Long>> iterator = quitTimes.entrySet().iterator();
+        
+        while (iterator.hasNext()) {
+            Map.Entry<UUID, Long> entry = iterator.next();
+            boolean expired = now - entry.getValue() >= idleTtlMillis;
+            if (!expired && playerDataTable.size() <= maxCacheSize) {
+                // Entries are in quit order, so everything after this is newer
+                break;
+            }
+            
+            if (plugin.getServer().getPlayer(entry.getKey()) != null) {
+                // Rejoined since quitting
+                iterator.remove();
+                continue;
+            }
+            
+            if (playerDataTable.isDirty(entry.getKey())) {
+                continue;
+            }
+            
+            playerDataTable.remove(entry.getKey());
+            iterator.remove();
+        }
+    }
+    
+    /**
+     * Snapshot and mark clean every dirty record. Other threads may keep changing player data
+     * meanwhile - their changes are either in this snapshot or left for the next one. Runs on
+     * the main thread so batches reach the store in the order they were collected.
+     * A null value means the player's crystal power was cleared.
+     */
+    private Map<UUID, String> collectDirtyRecords() {
+        Map<UUID, String> dirtyRecords = new LinkedHashMap<>();
+        playerDataTable.collectDirty(dirtyRecords);
+        return dirtyRecords;
+    }
+    
+    private void requeue(Map<UUID, String> records) {
+        if (!plugin.isEnabled()) {
+            return;
+        }
+        
+        plugin.getServer().getScheduler().runTask(plugin, () -> {
+            for (Map.Entry<UUID, String> entry : records.entrySet()) {
+                PlayerData data = playerDataTable.get(entry.getKey());
+                if (data == null) {
+                    // Evicted while the write was in flight - bring the change back
+                    data = new PlayerData(entry.getKey());
+                    if (entry.getValue() != null) {
+                        data.setCrystalPowerId(entry.getValue());
+                    }
+                    data = playerDataTable.putIfAbsent(data);
+                    quitTimes.put(entry.getKey(), System.currentTimeMillis());
+                }
+                data.markDirty();
+            }
+        });
+    }
+    
+    /**
+     * The backend selected with storage.mode
+     */
+    public PlayerDataStore getStore() {
+        return store;
     }
     
+    /**
+     * Number of players whose data is cached, online or not
+     */
+    public int getCachedPlayerCount() {
+        return playerDataTable.size();
+    }
+    
+    /**
+     * Heap used by the player data cache, in bytes
+     */
+    public long getCacheFootprintBytes() {
+        return playerDataTable.getFootprintBytes();
+    }
+    
+    /**
+     * Number of PlayerData views the cache has allocated since startup
+     */
+    public long getCacheViewsCreated() {
+        return playerDataTable.getViewsCreated();
+    }
+    
+    /**
+     * @throws IllegalStateException If the player's data could not be loaded, so a change
+     *         never overwrites a stored power that failed to load
+     */
     public PlayerData getPlayerData(Player player) {
-        return playerDataMap.computeIfAbsent(player.getUniqueId(), k -> new PlayerData(player.getUniqueId()));
+        PlayerData data = findPlayerData(player.getUniqueId());
+        if (data == null) {
+            throw new IllegalStateException("Player data for " + player.getName() + " could not be loaded");
+        }
+        return data;
     }
-      public PlayerData getExistingPlayerData(Player player) {
-        return playerDataMap.get(player.getUniqueId());
+    
+    public PlayerData getExistingPlayerData(Player player) {
+        return playerDataTable.get(player.getUniqueId());
     }
     
     public boolean hasPlayerData(Player player) {
-        return playerDataMap.containsKey(player.getUniqueId());
+        return playerDataTable.contains(player.getUniqueId());
     }
     
-    public void setPlayerCrystalPower(Player player, String crystalPowerId) {
+    /**
+     * Cache a joining player's data, taking the prefetched record if there is one
+     * @return false if it could not be loaded - nothing is cached then
+     */
+    public boolean loadPlayerData(Player player) {
+        return findPlayerData(player.getUniqueId()) != null;
+    }
+    
+    /**
+     * The resolved crystal power of an online player, for event handlers. Resolved on first
+     * use and kept until the player's power changes, they quit or the powers are reloaded,
+     * so repeated calls cost a single map lookup. Only reads the cache: a player whose
+     * data is not loaded has no power state, and nothing is cached for them. Main thread only.
+     * @return The player's power state, or null if they have no crystal power or their data
+     *         is not loaded
+     */
+    public PlayerPowerState getPowerState(Player player) {
+        UUID playerId = player.getUniqueId();
+        PlayerPowerState state = powerStates.get(playerId);
+        if (state != null || powerStates.containsKey(playerId)) {
+            return state;
+        }
+        
+        PlayerData data = playerDataTable.get(playerId);
+        if (data == null) {
+            // Loading is up to the join handler; once it has cached the data this resolves
+            return null;
+        }
+        state = resolvePowerState(playerId, data);
+        powerStates.put(playerId, state);
+        return state;
+    }
+    
+    /**
+     * Drop every resolved power state, e.g. after the crystal powers were reloaded.
+     * They are resolved again on next use.
+     */
+    public void invalidatePowerStates() {
+        powerStates.clear();
+    }
+    
+    private PlayerPowerState resolvePowerState(UUID playerId, PlayerData data) {
+        if (data == null || !data.hasSelectedCrystalPower() || data.getCrystalPowerId() == null) {
+            return null;
+        }
+        CrystalPower crystalPower = plugin.getCrystalPowerManager().getCrystalPower(data.getCrystalPowerId());
+        if (crystalPower == null) {
+            return null;
+        }
+        return new PlayerPowerState(playerId, crystalPower, plugin.getCrystalPowerManager().getAbilityRegistry().getAbilities(crystalPower));
+    }
+    
+    /**
+     * Look up a player's crystal power, including players who are offline.
+     * Cached players are answered straight away without locking. Offline players are
+     * read on the store's I/O lane and are not cached, so never join the result on the
+     * main thread. Safe to call from any thread.
+     * @return The crystal power ID, or null if the player has not selected one.
+     *         Completes exceptionally if the player's record could not be read.
+     */
+    public CompletableFuture<String> getStoredCrystalPowerId(UUID playerId) {
+        PlayerData data = playerDataTable.get(playerId);
+        if (data != null) {
+            return CompletableFuture.completedFuture(data.getCrystalPowerId());
+        }
+        return store.load(playerId).thenApply(stored -> stored != null ? stored.getCrystalPowerId() : null);
+    }
+    
+    /**
+     * Find every stored player with the given crystal power. Uses the crystal_power
+     * index in sql mode and scans the store off the main thread otherwise.
+     * Changes that have not been flushed yet are not included.
+     */
+    public CompletableFuture<List<UUID>> findPlayersWithCrystalPower(String crystalPowerId) {
+        return store.findPlayersWithPower(crystalPowerId);
+    }
+    
+    /**
+     * Load a player's data off the main thread before they join. Called during
+     * AsyncPlayerPreLoginEvent, so it may block for up to storage.prefetch_timeout_ms.
+     * If the load takes longer the login continues and the join loads the data itself.
+     * @return false if the player's data could not be read, in which case the login should be denied
+     */
+    public boolean prefetchPlayerData(UUID playerId) {
+        CompletableFuture<PlayerData> future = store.load(playerId);
+        pendingLoads.put(playerId, future);
+        
+        try {
+            future.get(prefetchTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            plugin.getLogger().warning("Prefetching player data for " + playerId + " took longer than " + prefetchTimeoutMillis + "ms");
+        } catch (ExecutionException e) {
+            plugin.getLogger().warning("Failed to prefetch player data for " + playerId + ": " + e.getCause().getMessage());
+            pendingLoads.remove(playerId, future);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return true;
+    }
+    
+    /**
+     * Find cached player data for an online player. On first access this takes the
+     * prefetched record, falling back to reading the store if the prefetch has not
+     * finished. Players without a stored record get an empty entry so later calls
+     * stay in memory. A failed load caches nothing, so it cannot be mistaken for a
+     * player without a record.
+     * @return The player's data, or null if it could not be loaded
+     */
+    private PlayerData findPlayerData(UUID playerId) {
+        PlayerData data = playerDataTable.get(playerId);
+        if (data != null) {
+            return data;
+        }
+        
+        CompletableFuture<PlayerData> pending = pendingLoads.remove(playerId);
+        if (pending != null && pending.isDone() && !pending.isCompletedExceptionally()) {
+            data = pending.join();
+        } else {
+            if (pending != null) {
+                plugin.getLogger().warning("Player data for " + playerId + " was not prefetched in time, loading on the main thread");
+            }
+            try {
+                data = loadFromStore(playerId);
+            } catch (CompletionException e) {
+                return null;
+            }
+        }
+        
+        if (data == null) {
+            data = new PlayerData(playerId);
+        }
+        // Another thread may have cached the player while this one was loading - keep theirs
+        return playerDataTable.putIfAbsent(data);
+    }
+    
+    /**
+     * Select a crystal power for a player and save it straight away
+     * @return Completes once the choice has been written to the store
+     */
+    public CompletableFuture<Void> setPlayerCrystalPower(Player player, String crystalPowerId) {
         PlayerData data = getPlayerData(player);
         
         // Remove old effects first if player had a crystal power
@@ -129,25 +499,52 @@ public class PlayerDataManager {
         }
         
         data.setCrystalPowerId(crystalPowerId);
+        powerStates.remove(player.getUniqueId());
         applyCrystalPowerEffects(player, data);
-        saveData();
         
         plugin.getLogger().info("Player " + player.getName() + " selected crystal power: " + crystalPowerId);
+        return commit(data);
     }
     
-    public void clearPlayerCrystalPower(Player player) {
+    public CompletableFuture<Void> clearPlayerCrystalPower(Player player) {
         PlayerData data = getPlayerData(player);
         if (data.hasSelectedCrystalPower()) {
             removeCrystalPowerEffects(player, data);
             data.setCrystalPowerId(null);
-            saveData();
         }
+        powerStates.remove(player.getUniqueId());
+        return commit(data);
     }
     
-    public void resetPlayerCrystalPower(Player player) {
+    public CompletableFuture<Void> resetPlayerCrystalPower(Player player) {
         clearPlayerCrystalPower(player);
         // Allow re-selection by creating fresh data
-        playerDataMap.put(player.getUniqueId(), new PlayerData(player.getUniqueId()));
+        PlayerData freshData = new PlayerData(player.getUniqueId());
+        freshData.markDirty();
+        PlayerData cached = playerDataTable.put(freshData);
+        powerStates.remove(player.getUniqueId());
+        return commit(cached);
+    }
+    
+    /**
+     * Save a single player's change now instead of waiting for the next background flush.
+     * Changes made within storage.group_commit_window_ms of each other share one write.
+     */
+    private CompletableFuture<Void> commit(PlayerData data) {
+        if (!data.isDirty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        Map<UUID, String> record = new LinkedHashMap<>();
+        record.put(data.getPlayerId(), data.getCrystalPowerId());
+        data.markClean();
+        
+        return store.saveAll(record).whenComplete((result, error) -> {
+            if (error != null) {
+                plugin.getLogger().severe("Could not save crystal power for " + data.getPlayerId() + "! Retrying on next flush: " + error.getMessage());
+                requeue(record);
+            }
+        });
     }
       public void applyCrystalPowerEffects(Player player, PlayerData data) {
         if (!data.hasSelectedCrystalPower()) {
@@ -166,11 +563,8 @@ public class PlayerDataManager {
         
         CrystalPower.CrystalPowerProperties props = crystalPower.getProperties();
         
-        // Set max health
-        if (props.getMaxHealth() != 20) {
-            player.getAttribute(Attribute.GENERIC_MAX_HEALTH).setBaseValue(props.getMaxHealth());
-            plugin.getLogger().info("[DEBUG] Set max health to " + props.getMaxHealth() + " for " + player.getName());
-        }
+        // Max health and speed are attribute modifiers
+        plugin.getPlayerStatManager().reconcile(player);
         
         // Apply flight - ensure player is in survival mode and can fly
         if (props.canFly()) {
@@ -213,13 +607,6 @@ public class PlayerDataManager {
             }
         }
         
-        // Apply land speed changes
-        if (props.getLandSpeed() != 1.0f) {
-            float speed = 0.2f * props.getLandSpeed();
-            player.setWalkSpeed(speed);
-            plugin.getLogger().info("[DEBUG] Set walk speed to " + speed + " for " + player.getName());
-        }
-        
         plugin.getLogger().info("[DEBUG] Finished applying effects for " + player.getName());
     }
     
@@ -235,16 +622,16 @@ public class PlayerDataManager {
         
         CrystalPower.CrystalPowerProperties props = crystalPower.getProperties();
         
+        // Remove effects the power's abilities were keeping up
+        plugin.getPotionEffectManager().releaseAll(player);
+        
         // Reset flight
         if (props.canFly() && player.getGameMode() != GameMode.CREATIVE && player.getGameMode() != GameMode.SPECTATOR) {
             player.setAllowFlight(false);
             player.setFlying(false);
         }
-          // Reset max health
-        player.getAttribute(Attribute.GENERIC_MAX_HEALTH).setBaseValue(20.0);
-        
-        // Reset walk speed
-        player.setWalkSpeed(0.2f);
+          // Remove max health and speed modifiers
+        plugin.getPlayerStatManager().clear(player);
         
         // Remove potion effects
         for (PotionEffect effect : props.getPotionEffects()) {
@@ -285,8 +672,12 @@ public class PlayerDataManager {
     }
     
     public void onPlayerQuit(Player player) {
-        // Save data when player leaves
-        saveData();
+        // Changes are flushed by the background writer - just start the idle timer
+        powerStates.remove(player.getUniqueId());
+        quitTimes.remove(player.getUniqueId());
+        quitTimes.put(player.getUniqueId(), System.currentTimeMillis());
+        // Their slot stays cached until evicted; the view is only worth keeping while they play
+        playerDataTable.releaseView(player.getUniqueId());
     }
     
     public void applyCrystalPowerToPlayer(Player player) {
@@ -314,13 +705,9 @@ public class PlayerDataManager {
         for (var effect : crystalPower.getPermanentEffects()) {
             player.addPotionEffect(effect);
             plugin.getLogger().info("DEBUG: Applied potion effect " + effect.getType().getName() + " to " + player.getName());
-        }        // Set max health
+        }        // Set max health and speed
         var properties = crystalPower.getProperties();
-        if (properties.getMaxHealth() != 20) {
-            player.getAttribute(Attribute.GENERIC_MAX_HEALTH).setBaseValue(properties.getMaxHealth());
-            player.setHealth(Math.min(player.getHealth(), properties.getMaxHealth()));
-            plugin.getLogger().info("DEBUG: Set max health to " + properties.getMaxHealth() + " for " + player.getName());
-        }
+        plugin.getPlayerStatManager().reconcile(player);
 
         // Apply flight if available
         if (properties.canFly()) {
@@ -0,0 +1,571 @@
+package com.crystalpowers.plugin.managers;
+
+import com.crystalpowers.plugin.models.PlayerData;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Cache of player data stored column-wise in an open-addressing table keyed by the two
+ * halves of the player's UUID. Everything else about a player is packed into one long:
+ * the time of the last change, a one-byte index into a palette of power IDs and a few
+ * flags. A cached player costs 28 bytes of array space per slot instead of a HashMap node,
+ * a UUID and a PlayerData object (around 100 bytes), plus a view once they are looked up.
+ * <p>
+ * Lookups hand out PlayerData views that read and write the table directly. A view finds
+ * its slot again after entries move, so it stays valid for as long as it is kept. Each slot
+ * keeps the view it handed out and moves it along with the entry, so repeated lookups of
+ * the same player - every event handler of an online player - allocate nothing. A view
+ * costs more than the slot itself, so the manager releases it when the player quits;
+ * PlayerDataTableFootprint in the benchmarks profile measures both against a HashMap.
+ * <p>
+ * Safe to use from any thread. Reads are optimistic and never block. Changes to a cached
+ * player are a compare-and-set on its state word under the shared side of the lock, so they
+ * only wait for inserts, removals and resizes, which take the exclusive side.
+ */
+final class PlayerDataTable {
+    private static final int MIN_CAPACITY = 64;
+    private static final int MAX_POWERS = 255;
+    private static final VarHandle STATES = MethodHandles.arrayElementVarHandle(long[].class);
+    
+    // State word layout: last change millis in the top 48 bits, then the power index, then flags.
+    // Occupied slots always have OCCUPIED set, so an empty slot is exactly 0.
+    private static final long OCCUPIED = 1;
+    private static final long SELECTED = 2;
+    private static final long DIRTY = 4;
+    private static final int POWER_SHIFT = 8;
+    private static final int TIME_SHIFT = 16;
+    
+    // Estimated heap per cached view: the view and its PlayerData fields, plus its UUID
+    private static final long VIEW_BYTES = 88;
+    
+    private final StampedLock lock;
+    private final Map<String, Integer> paletteIndex;
+    // Copy-on-write, so reads need no lock
+    private volatile String[] palette;
+    private volatile Columns columns;
+    private volatile int size;
+    private final LongAdder viewsCreated;
+    
+    /**
+     * @param knownPowerIds Power IDs to put in the palette up front. IDs seen later, such as
+     *                      a stored power that is no longer registered, are added as they appear.
+     */
+    PlayerDataTable(Collection<String> knownPowerIds) {
+        this.lock = new StampedLock();
+        this.viewsCreated = new LongAdder();
+        this.paletteIndex = new ConcurrentHashMap<>();
+        // Index 0 means no crystal power
+        this.palette = new String[] {null};
+        for (String crystalPowerId : knownPowerIds) {
+            paletteIndexOf(crystalPowerId);
+        }
+        this.columns = new Columns(MIN_CAPACITY);
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    int capacity() {
+        return columns.states.length;
+    }
+    
+    /**
+     * Heap used by the table's arrays and the views it keeps, excluding the palette
+     */
+    long getFootprintBytes() {
+        Columns table = columns;
+        int views = 0;
+        for (View view : table.views) {
+            if (view != null) {
+                views++;
+            }
+        }
+        // Three long columns, the view column (compressed references) and their array headers
+        return capacity() * (3L * Long.BYTES + Integer.BYTES) + 4L * 16 + views * VIEW_BYTES;
+    }
+    
+    /**
+     * Number of views allocated so far. Only grows when a player is looked up for the first
+     * time since they were cached, or after a view was dropped with its entry.
+     */
+    long getViewsCreated() {
+        return viewsCreated.sum();
+    }
+    
+    /**
+     * Whether the player is cached. Creates no view.
+     */
+    boolean contains(UUID playerId) {
+        return stateOf(playerId) != 0;
+    }
+    
+    /**
+     * Whether the player is cached with changes that have not been collected yet. Creates no view.
+     */
+    boolean isDirty(UUID playerId) {
+        return (stateOf(playerId) & DIRTY) != 0;
+    }
+    
+    /**
+     * Drop the view kept for a player, e.g. once they quit, so a cached player nobody is
+     * looking up costs only their slot. Views already handed out keep working.
+     */
+    void releaseView(UUID playerId) {
+        long stamp = lock.readLock();
+        try {
+            Columns table = columns;
+            int slot = find(table, playerId.getMostSignificantBits(), playerId.getLeastSignificantBits());
+            if (slot >= 0) {
+                table.views[slot] = null;
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
+    /**
+     * @return A view of the player's cached data, or null if they are not cached
+     */
+    PlayerData get(UUID playerId) {
+        long msb = playerId.getMostSignificantBits();
+        long lsb = playerId.getLeastSignificantBits();
+        
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            Columns table = columns;
+            int slot = find(table, msb, lsb);
+            View view = slot >= 0 ? table.views[slot] : null;
+            if (lock.validate(stamp)) {
+                if (slot < 0) {
+                    return null;
+                }
+                if (view != null && view.msb == msb && view.lsb == lsb) {
+                    return view;
+                }
+            }
+        }
+        
+        // The slot has no view yet - create it under the lock so it is never lost to a move
+        stamp = lock.readLock();
+        try {
+            Columns table = columns;
+            int slot = find(table, msb, lsb);
+            return slot >= 0 ? viewAt(table, slot, playerId) : null;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
+    /**
+     * Cache a copy of a record, replacing any cached data for the same player
+     * @return A view of the cached copy
+     */
+    PlayerData put(PlayerData data) {
+        return store(data, true);
+    }
+    
+    /**
+     * Cache a copy of a record unless the player is already cached
+     * @return A view of the player's cached data, whichever record that is
+     */
+    PlayerData putIfAbsent(PlayerData data) {
+        return store(data, false);
+    }
+    
+    private PlayerData store(PlayerData data, boolean replace) {
+        UUID playerId = data.getPlayerId();
+        long state = OCCUPIED;
+        if (data.hasSelectedCrystalPower()) {
+            state |= SELECTED;
+        }
+        if (data.isDirty()) {
+            state |= DIRTY;
+        }
+        state |= (long) paletteIndexOf(data.getCrystalPowerId()) << POWER_SHIFT;
+        state |= data.getLastCrystalPowerChange() << TIME_SHIFT;
+        
+        long stamp = lock.writeLock();
+        try {
+            long msb = playerId.getMostSignificantBits();
+            long lsb = playerId.getLeastSignificantBits();
+            int slot = find(columns, msb, lsb);
+            if (slot < 0) {
+                slot = insert(msb, lsb, state);
+            } else if (replace) {
+                STATES.setVolatile(columns.states, slot, state);
+            }
+            return viewAt(columns, slot, playerId);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    boolean remove(UUID playerId) {
+        long stamp = lock.writeLock();
+        try {
+            Columns table = columns;
+            int slot = find(table, playerId.getMostSignificantBits(), playerId.getLeastSignificantBits());
+            if (slot < 0) {
+                return false;
+            }
+            
+            // Backward-shift deletion: pull later entries of the probe run into the gap so
+            // lookups never need tombstones
+            int mask = table.states.length - 1;
+            int gap = slot;
+            int next = (gap + 1) & mask;
+            while (table.states[next] != 0) {
+                int home = hash(table.mostSigBits[next], table.leastSigBits[next]) & mask;
+                // Move the entry if its home slot is not between the gap and its current slot
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    table.mostSigBits[gap] = table.mostSigBits[next];
+                    table.leastSigBits[gap] = table.leastSigBits[next];
+                    table.views[gap] = table.views[next];
+                    STATES.setVolatile(table.states, gap, table.states[next]);
+                    gap = next;
+                }
+                next = (next + 1) & mask;
+            }
+            table.views[gap] = null;
+            STATES.setVolatile(table.states, gap, 0L);
+            size--;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    /**
+     * Copy every record with unsaved changes into the map and mark it clean. Each record is
+     * claimed atomically, so a change made while this runs is either included or left dirty
+     * for the next call - never lost. Reads and changes to cached players carry on meanwhile.
+     * A null value means the player's crystal power was cleared.
+     */
+    void collectDirty(Map<UUID, String> into) {
+        String[] powers = palette;
+        long stamp = lock.readLock();
+        try {
+            Columns table = columns;
+            for (int slot = 0; slot < table.states.length; slot++) {
+                long state;
+                do {
+                    state = (long) STATES.getVolatile(table.states, slot);
+                } while ((state & DIRTY) != 0 && !STATES.compareAndSet(table.states, slot, state, state & ~DIRTY));
+                
+                if ((state & DIRTY) != 0) {
+                    int power = powerOf(state);
+                    if (power >= powers.length) {
+                        powers = palette;
+                    }
+                    into.put(new UUID(table.mostSigBits[slot], table.leastSigBits[slot]), powers[power]);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
+    /**
+     * The player's state word, or 0 if they are not cached
+     */
+    private long stateOf(UUID playerId) {
+        long msb = playerId.getMostSignificantBits();
+        long lsb = playerId.getLeastSignificantBits();
+        
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            Columns table = columns;
+            int slot = find(table, msb, lsb);
+            long state = slot >= 0 ? (long) STATES.getVolatile(table.states, slot) : 0;
+            if (lock.validate(stamp)) {
+                return state;
+            }
+        }
+        
+        stamp = lock.readLock();
+        try {
+            Columns table = columns;
+            int slot = find(table, msb, lsb);
+            return slot >= 0 ? (long) STATES.getVolatile(table.states, slot) : 0;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
+    /**
+     * Slot of a player, or -1. Callers hold the lock or validate an optimistic stamp afterwards,
+     * so the probe is bounded in case it runs over a table that is being rearranged.
+     */
+    private static int find(Columns table, long msb, long lsb) {
+        int mask = table.states.length - 1;
+        int slot = hash(msb, lsb) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            if ((long) STATES.getVolatile(table.states, slot) == 0) {
+                return -1;
+            }
+            if (table.mostSigBits[slot] == msb && table.leastSigBits[slot] == lsb) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+    
+    /**
+     * The view kept in a slot, created on first use. Caller must hold the lock, either side -
+     * views only move under the write lock, and two threads racing to create one both get a
+     * working view.
+     */
+    private View viewAt(Columns table, int slot, UUID playerId) {
+        View view = table.views[slot];
+        if (view == null || view.msb != playerId.getMostSignificantBits() || view.lsb != playerId.getLeastSignificantBits()) {
+            view = new View(playerId, slot);
+            viewsCreated.increment();
+            table.views[slot] = view;
+        }
+        return view;
+    }
+    
+    /**
+     * Add a player who is not in the table yet. Caller must hold the write lock.
+     */
+    private int insert(long msb, long lsb, long state) {
+        // Grow at 75% load to keep probe runs short
+        if ((size + 1) * 4L > capacity() * 3L) {
+            resize(capacity() * 2);
+        }
+        
+        Columns table = columns;
+        int mask = table.states.length - 1;
+        int slot = hash(msb, lsb) & mask;
+        while (table.states[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table.mostSigBits[slot] = msb;
+        table.leastSigBits[slot] = lsb;
+        STATES.setVolatile(table.states, slot, state);
+        size++;
+        return slot;
+    }
+    
+    /**
+     * Rehash into larger columns. Caller must hold the write lock.
+     */
+    private void resize(int newCapacity) {
+        Columns oldTable = columns;
+        Columns table = new Columns(newCapacity);
+        int mask = newCapacity - 1;
+        
+        for (int oldSlot = 0; oldSlot < oldTable.states.length; oldSlot++) {
+            long state = oldTable.states[oldSlot];
+            if (state == 0) {
+                continue;
+            }
+            int slot = hash(oldTable.mostSigBits[oldSlot], oldTable.leastSigBits[oldSlot]) & mask;
+            while (table.states[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table.mostSigBits[slot] = oldTable.mostSigBits[oldSlot];
+            table.leastSigBits[slot] = oldTable.leastSigBits[oldSlot];
+            table.views[slot] = oldTable.views[oldSlot];
+            table.states[slot] = state;
+        }
+        columns = table;
+    }
+    
+    private static int hash(long msb, long lsb) {
+        // Version 4 UUIDs are mostly random, but offline-mode UUIDs are name hashes with fixed bits - mix anyway
+        long hash = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+    
+    private static int powerOf(long state) {
+        return (int) (state >>> POWER_SHIFT) & 0xFF;
+    }
+    
+    private int paletteIndexOf(String crystalPowerId) {
+        if (crystalPowerId == null) {
+            return 0;
+        }
+        
+        Integer index = paletteIndex.get(crystalPowerId);
+        if (index != null) {
+            return index;
+        }
+        
+        synchronized (paletteIndex) {
+            index = paletteIndex.get(crystalPowerId);
+            if (index == null) {
+                String[] current = palette;
+                if (current.length > MAX_POWERS) {
+                    throw new IllegalStateException("Cannot cache more than " + MAX_POWERS + " distinct crystal power IDs");
+                }
+                index = current.length;
+                String[] grown = Arrays.copyOf(current, current.length + 1);
+                grown[index] = crystalPowerId;
+                // Publish the palette entry before any state word can refer to it
+                palette = grown;
+                paletteIndex.put(crystalPowerId, index);
+            }
+            return index;
+        }
+    }
+    
+    /**
+     * Parallel key, state and view arrays, replaced as a unit on resize
+     */
+    private static final class Columns {
+        private final long[] mostSigBits;
+        private final long[] leastSigBits;
+        private final long[] states;
+        private final View[] views;
+        
+        private Columns(int capacity) {
+            this.mostSigBits = new long[capacity];
+            this.leastSigBits = new long[capacity];
+            this.states = new long[capacity];
+            this.views = new View[capacity];
+        }
+    }
+    
+    /**
+     * PlayerData backed by a table slot. If the player has been removed from the table,
+     * getters return the values of an empty record and setters add the player back.
+     */
+    private final class View extends PlayerData {
+        private final long msb;
+        private final long lsb;
+        // Where the player was last seen. Only a hint - checked against the keys on every use.
+        private volatile int slot;
+        
+        private View(UUID playerId, int slot) {
+            super(playerId);
+            this.msb = playerId.getMostSignificantBits();
+            this.lsb = playerId.getLeastSignificantBits();
+            this.slot = slot;
+        }
+        
+        /**
+         * Current slot in the given columns, or -1 if the player is not cached
+         */
+        private int locate(Columns table) {
+            int hint = slot;
+            if (hint >= 0 && hint < table.states.length && table.mostSigBits[hint] == msb &&
+                table.leastSigBits[hint] == lsb && (long) STATES.getVolatile(table.states, hint) != 0) {
+                return hint;
+            }
+            int found = find(table, msb, lsb);
+            slot = found;
+            return found;
+        }
+        
+        /**
+         * The player's state word, or 0 if they are not cached
+         */
+        private long state() {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                Columns table = columns;
+                int current = locate(table);
+                long state = current >= 0 ? (long) STATES.getVolatile(table.states, current) : 0;
+                if (lock.validate(stamp)) {
+                    return state;
+                }
+            }
+            
+            stamp = lock.readLock();
+            try {
+                Columns table = columns;
+                int current = locate(table);
+                return current >= 0 ? (long) STATES.getVolatile(table.states, current) : 0;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        
+        /**
+         * Atomically apply a change to the player's state word
+         * @param addIfMissing Whether to add the player back if they are not cached
+         */
+        private void update(LongUnaryOperator change, boolean addIfMissing) {
+            long stamp = lock.readLock();
+            try {
+                Columns table = columns;
+                int current = locate(table);
+                if (current >= 0) {
+                    long state;
+                    do {
+                        state = (long) STATES.getVolatile(table.states, current);
+                    } while (!STATES.compareAndSet(table.states, current, state, change.applyAsLong(state)));
+                    return;
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            
+            if (!addIfMissing) {
+                return;
+            }
+            stamp = lock.writeLock();
+            try {
+                int current = locate(columns);
+                if (current < 0) {
+                    slot = insert(msb, lsb, change.applyAsLong(OCCUPIED));
+                    columns.views[slot] = this;
+                } else {
+                    STATES.setVolatile(columns.states, current, change.applyAsLong(columns.states[current]));
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+        
+        @Override
+        public String getCrystalPowerId() {
+            int power = powerOf(state());
+            return power != 0 ? palette[power] : null;
+        }
+        
+        @Override
+        public void setCrystalPowerId(String crystalPowerId) {
+            long power = (long) paletteIndexOf(crystalPowerId) << POWER_SHIFT;
+            long changed = System.currentTimeMillis() << TIME_SHIFT;
+            update(state -> changed | power | (state & 0xFF) | SELECTED | DIRTY, true);
+        }
+        
+        @Override
+        public boolean hasSelectedCrystalPower() {
+            return (state() & SELECTED) != 0;
+        }
+        
+        @Override
+        public long getLastCrystalPowerChange() {
+            return state() >>> TIME_SHIFT;
+        }
+        
+        @Override
+        public boolean isDirty() {
+            return (state() & DIRTY) != 0;
+        }
+        
+        @Override
+        public void markDirty() {
+            update(state -> state | DIRTY, true);
+        }
+        
+        @Override
+        public void markClean() {
+            update(state -> state & ~DIRTY, false);
+        }
+    }
+}
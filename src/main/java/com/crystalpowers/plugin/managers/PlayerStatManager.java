@@ -0,0 +1,234 @@
+package com.crystalpowers.plugin.managers;
+
+import com.crystalpowers.plugin.CrystalPowersPlugin;
+import com.crystalpowers.plugin.models.CrystalPower;
+import com.crystalpowers.plugin.models.PlayerPowerState;
+import org.bukkit.attribute.Attribute;
+import org.bukkit.attribute.AttributeInstance;
+import org.bukkit.attribute.AttributeModifier;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerGameModeChangeEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Applies a crystal power's max health and land speed as attribute modifiers with fixed
+ * UUIDs, on top of whatever base values the server or other plugins set. Modifiers are
+ * only reconciled when something they depend on changes - the power, game mode, world or
+ * whether the player is in water - and only touched if they differ.
+ *
+ * Swim speed is only a flag. Minecraft has no swim speed attribute, movement speed barely
+ * counts in water without Depth Strider, and Dolphin's Grace gives the same boost at every
+ * level. So a swim speed above 1 gives Dolphin's Grace while the player is in water, 1.2
+ * swims exactly as fast as 3, and below 1 does nothing. This is the only place crystal
+ * powers get Dolphin's Grace from. The land speed modifier is lifted in water so it does
+ * not slow Depth Strider swimming.
+ *
+ * Modifiers are saved with the player, so they are left in place on quit - removing max
+ * health there would cost the player their extra health on the next join - and put back
+ * by the same UUIDs when the player joins. They are cleared for everyone online when the
+ * plugin is disabled, so they do not outlive it.
+ *
+ * Main thread only.
+ */
+public class PlayerStatManager implements Listener {
+    private static final UUID MAX_HEALTH_ID = modifierId("max_health");
+    private static final UUID WALK_SPEED_ID = modifierId("walk_speed");
+    // No longer applied, only removed from players who still have it saved
+    private static final UUID SWIM_SPEED_ID = modifierId("swim_speed");
+    private static final String SWIM_BOOST_SOURCE = "stats.swim_speed";
+    private static final PotionEffect SWIM_BOOST = new PotionEffect(PotionEffectType.DOLPHINS_GRACE, 600, 0, false, false);
+    private static final double DEFAULT_MAX_HEALTH = 20.0;
+    private static final float DEFAULT_WALK_SPEED = 0.2f;
+    // Earlier versions gave swimmers Dolphin's Grace II for Integer.MAX_VALUE ticks
+    private static final int LEGACY_SWIM_BOOST_TICKS = Integer.MAX_VALUE / 2;
+    
+    private final CrystalPowersPlugin plugin;
+    private final Set<UUID> inWater;
+    private long reconciles;
+    private long changes;
+    
+    public PlayerStatManager(CrystalPowersPlugin plugin) {
+        this.plugin = plugin;
+        this.inWater = new HashSet<>();
+    }
+    
+    /**
+     * Bring the player's modifiers in line with their current crystal power
+     */
+    public void reconcile(Player player) {
+        reconciles++;
+        PlayerPowerState state = plugin.getPlayerDataManager().getPowerState(player);
+        CrystalPower.CrystalPowerProperties props = state != null ? state.getProperties() : null;
+        boolean swimming = inWater.contains(player.getUniqueId());
+        
+        AttributeInstance maxHealth = player.getAttribute(Attribute.GENERIC_MAX_HEALTH);
+        AttributeInstance movementSpeed = player.getAttribute(Attribute.GENERIC_MOVEMENT_SPEED);
+        if (props != null) {
+            undoBaseValues(player, props, maxHealth);
+        }
+        
+        apply(maxHealth, MAX_HEALTH_ID, "crystalpowers.max_health",
+              props != null ? props.getMaxHealth() - DEFAULT_MAX_HEALTH : 0, AttributeModifier.Operation.ADD_NUMBER);
+        apply(movementSpeed, WALK_SPEED_ID, "crystalpowers.walk_speed",
+              props != null && !swimming ? props.getLandSpeed() - 1.0 : 0, AttributeModifier.Operation.MULTIPLY_SCALAR_1);
+        apply(movementSpeed, SWIM_SPEED_ID, null, 0, AttributeModifier.Operation.MULTIPLY_SCALAR_1);
+        updateSwimBoost(player, props, swimming, 0);
+        
+        if (maxHealth != null && player.getHealth() > maxHealth.getValue()) {
+            player.setHealth(maxHealth.getValue());
+        }
+    }
+    
+    public void reconcileAll() {
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            reconcile(player);
+        }
+    }
+    
+    /**
+     * Remove everyone's modifiers, when the plugin is disabled
+     */
+    public void clearAll() {
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            clear(player);
+        }
+    }
+    
+    /**
+     * Remove the player's modifiers, e.g. when their crystal power is taken away
+     */
+    public void clear(Player player) {
+        inWater.remove(player.getUniqueId());
+        apply(player.getAttribute(Attribute.GENERIC_MAX_HEALTH), MAX_HEALTH_ID, null, 0, AttributeModifier.Operation.ADD_NUMBER);
+        apply(player.getAttribute(Attribute.GENERIC_MOVEMENT_SPEED), WALK_SPEED_ID, null, 0, AttributeModifier.Operation.MULTIPLY_SCALAR_1);
+        apply(player.getAttribute(Attribute.GENERIC_MOVEMENT_SPEED), SWIM_SPEED_ID, null, 0, AttributeModifier.Operation.MULTIPLY_SCALAR_1);
+        plugin.getPotionEffectManager().release(player, SWIM_BOOST_SOURCE);
+    }
+    
+    /**
+     * Switch between land and swim speed when the player enters or leaves water, and keep
+     * the swim boost from running out while they stay in
+     * @param refreshTicks remaining ticks below which the swim boost is renewed
+     */
+    public void setInWater(Player player, boolean water, int refreshTicks) {
+        boolean changed = water ? inWater.add(player.getUniqueId()) : inWater.remove(player.getUniqueId());
+        if (changed) {
+            reconcile(player);
+        } else if (water) {
+            PlayerPowerState state = plugin.getPlayerDataManager().getPowerState(player);
+            updateSwimBoost(player, state != null ? state.getProperties() : null, true, refreshTicks);
+        }
+    }
+    
+    /**
+     * Statistics, one line per figure
+     */
+    public List<String> getReport() {
+        return List.of("reconciled " + reconciles + " times, " + changes + " modifiers changed, " + inWater.size() + " players in water");
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onGameModeChange(PlayerGameModeChangeEvent event) {
+        // The new game mode is only in effect once the event is over
+        Player player = event.getPlayer();
+        plugin.getServer().getScheduler().runTask(plugin, () -> {
+            if (player.isOnline()) {
+                reconcile(player);
+            }
+        });
+    }
+    
+    @EventHandler
+    public void onChangedWorld(PlayerChangedWorldEvent event) {
+        reconcile(event.getPlayer());
+    }
+    
+    @EventHandler
+    public void onRespawn(PlayerRespawnEvent event) {
+        // The respawned player's attributes are only set up after the event
+        Player player = event.getPlayer();
+        plugin.getServer().getScheduler().runTask(plugin, () -> {
+            if (player.isOnline()) {
+                reconcile(player);
+            }
+        });
+    }
+    
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        inWater.remove(event.getPlayer().getUniqueId());
+    }
+    
+    private void updateSwimBoost(Player player, CrystalPower.CrystalPowerProperties props, boolean swimming, int refreshTicks) {
+        if (props != null && swimming && props.getSwimSpeed() > 1.0f) {
+            plugin.getPotionEffectManager().want(player, SWIM_BOOST_SOURCE, SWIM_BOOST, refreshTicks);
+        } else {
+            plugin.getPotionEffectManager().release(player, SWIM_BOOST_SOURCE);
+        }
+    }
+    
+    /**
+     * Add, replace or remove one modifier, leaving it alone if it is already right
+     * @param amount 0 to remove the modifier
+     */
+    private void apply(AttributeInstance attribute, UUID id, String name, double amount, AttributeModifier.Operation operation) {
+        if (attribute == null) {
+            return;
+        }
+        
+        AttributeModifier current = null;
+        for (AttributeModifier modifier : attribute.getModifiers()) {
+            if (modifier.getUniqueId().equals(id)) {
+                current = modifier;
+                break;
+            }
+        }
+        
+        if (current == null ? amount == 0 : current.getAmount() == amount && current.getOperation() == operation) {
+            return;
+        }
+        if (current != null) {
+            attribute.removeModifier(current);
+        }
+        if (amount != 0) {
+            attribute.addModifier(new AttributeModifier(id, name, amount, operation));
+        }
+        changes++;
+    }
+    
+    /**
+     * Earlier versions set max health and walk speed directly. Put those back to the
+     * defaults, or the modifiers would apply twice. They also gave swimmers a Dolphin's
+     * Grace that never ran out, which would keep them fast out of water.
+     */
+    private static void undoBaseValues(Player player, CrystalPower.CrystalPowerProperties props, AttributeInstance maxHealth) {
+        if (maxHealth != null && props.getMaxHealth() != DEFAULT_MAX_HEALTH && maxHealth.getBaseValue() == props.getMaxHealth()) {
+            maxHealth.setBaseValue(DEFAULT_MAX_HEALTH);
+        }
+        if (props.getLandSpeed() != 1.0f && Math.abs(player.getWalkSpeed() - DEFAULT_WALK_SPEED * props.getLandSpeed()) < 0.001f) {
+            player.setWalkSpeed(DEFAULT_WALK_SPEED);
+        }
+        PotionEffect grace = player.getPotionEffect(PotionEffectType.DOLPHINS_GRACE);
+        if (props.getSwimSpeed() > 1.0f && grace != null && grace.getAmplifier() == 1 &&
+            !grace.isInfinite() && grace.getDuration() > LEGACY_SWIM_BOOST_TICKS) {
+            player.removePotionEffect(PotionEffectType.DOLPHINS_GRACE);
+        }
+    }
+    
+    private static UUID modifierId(String stat) {
+        return UUID.nameUUIDFromBytes(("crystalpowers:" + stat).getBytes(StandardCharsets.UTF_8));
+    }
+}
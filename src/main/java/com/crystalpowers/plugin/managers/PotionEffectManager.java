@@ -0,0 +1,159 @@
+package com.crystalpowers.plugin.managers;
+
+import org.bukkit.entity.Player;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keeps the potion effects abilities want each player to have, and only touches the player
+ * when that changes: an effect is added when it is missing, weaker or close to running out,
+ * and removed when the last ability wanting it lets go. Repeating a request for an effect
+ * the player already has costs a map lookup, not a packet.
+ *
+ * Abilities want effects under a source name, so two abilities can share an effect type
+ * without one removing it from under the other. Effects should be created once and reused;
+ * PotionEffect is immutable.
+ *
+ * Only effects this manager added are ever removed, and only while the player still has
+ * them as added. An effect of the same type from elsewhere - a crystal power's own effects,
+ * a potion the player drank - is left alone and only topped up once it is about to run out.
+ *
+ * Main thread only.
+ */
+public class PotionEffectManager {
+    private final Map<UUID, PlayerEffects> players;
+    private long requests;
+    private long added;
+    private long removed;
+    
+    public PotionEffectManager() {
+        this.players = new HashMap<>();
+    }
+    
+    /**
+     * Make sure the player has the effect, as long as the source keeps wanting it
+     * @param refreshTicks Re-add the effect once fewer ticks than this are left
+     */
+    public void want(Player player, String source, PotionEffect effect, int refreshTicks) {
+        requests++;
+        PlayerEffects effects = players.computeIfAbsent(player.getUniqueId(), id -> new PlayerEffects());
+        effects.wanted.put(source, effect);
+        
+        PotionEffectType type = effect.getType();
+        PotionEffect current = player.getPotionEffect(type);
+        if (current != null) {
+            PotionEffect own = effects.applied.get(type);
+            if (own == null || !matches(current, own)) {
+                // Not ours, or replaced since - leave it until it runs out
+                effects.applied.remove(type);
+                if (lastsLongerThan(current, refreshTicks)) {
+                    return;
+                }
+            } else if (current.getAmplifier() >= effect.getAmplifier() && lastsLongerThan(current, refreshTicks)) {
+                return;
+            }
+        }
+        player.addPotionEffect(effect);
+        effects.applied.put(type, effect);
+        added++;
+    }
+    
+    /**
+     * The source no longer wants its effect. The effect is removed unless another source wants
+     * the same type, or it is no longer the one this manager added.
+     */
+    public void release(Player player, String source) {
+        PlayerEffects effects = players.get(player.getUniqueId());
+        PotionEffect effect = effects != null ? effects.wanted.remove(source) : null;
+        if (effect == null) {
+            return;
+        }
+        
+        requests++;
+        if (!isWanted(effects.wanted, effect.getType())) {
+            removeOwn(player, effects, effect.getType());
+        }
+        if (effects.wanted.isEmpty() && effects.applied.isEmpty()) {
+            players.remove(player.getUniqueId());
+        }
+    }
+    
+    /**
+     * Whether the source currently wants an effect on the player
+     */
+    public boolean isWanted(Player player, String source) {
+        PlayerEffects effects = players.get(player.getUniqueId());
+        return effects != null && effects.wanted.containsKey(source);
+    }
+    
+    /**
+     * Remove every effect this manager added to the player, e.g. when their crystal power changes or they quit
+     */
+    public void releaseAll(Player player) {
+        PlayerEffects effects = players.remove(player.getUniqueId());
+        if (effects == null) {
+            return;
+        }
+        for (PotionEffectType type : new ArrayList<>(effects.applied.keySet())) {
+            removeOwn(player, effects, type);
+        }
+    }
+    
+    /**
+     * Manager statistics, one line per figure
+     */
+    public List<String> getReport() {
+        long sent = added + removed;
+        return List.of(
+            "requests " + requests + ", sent " + sent + String.format(" (%.1f%%)", requests == 0 ? 0.0 : sent * 100.0 / requests),
+            "added " + added + ", removed " + removed + ", players " + players.size()
+        );
+    }
+    
+    private void removeOwn(Player player, PlayerEffects effects, PotionEffectType type) {
+        PotionEffect own = effects.applied.remove(type);
+        PotionEffect current = player.getPotionEffect(type);
+        if (own != null && current != null && matches(current, own)) {
+            player.removePotionEffect(type);
+            removed++;
+        }
+    }
+    
+    private static boolean isWanted(Map<String, PotionEffect> effects, PotionEffectType type) {
+        for (PotionEffect effect : effects.values()) {
+            if (effect.getType().equals(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Whether the player's current effect is still the one that was added, ticked down
+     */
+    private static boolean matches(PotionEffect current, PotionEffect own) {
+        if (current.getAmplifier() != own.getAmplifier() || current.isAmbient() != own.isAmbient() ||
+            current.hasParticles() != own.hasParticles()) {
+            return false;
+        }
+        return own.isInfinite() ? current.isInfinite() : !current.isInfinite() && current.getDuration() <= own.getDuration();
+    }
+    
+    private static boolean lastsLongerThan(PotionEffect effect, int ticks) {
+        return effect.isInfinite() || effect.getDuration() > ticks;
+    }
+    
+    /**
+     * What abilities want on one player, by source, and what was added for them, by type
+     */
+    private static final class PlayerEffects {
+        private final Map<String, PotionEffect> wanted = new HashMap<>(4);
+        private final Map<PotionEffectType, PotionEffect> applied = new HashMap<>(4);
+    }
+}
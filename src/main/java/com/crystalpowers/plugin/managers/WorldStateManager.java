@@ -0,0 +1,139 @@
+package com.crystalpowers.plugin.managers;
+
+import com.crystalpowers.plugin.CrystalPowersPlugin;
+import com.crystalpowers.plugin.models.WorldState;
+import org.bukkit.World;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.weather.ThunderChangeEvent;
+import org.bukkit.event.weather.WeatherChangeEvent;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Keeps a {@link WorldState} for every loaded world. Time of day is read once per tick,
+ * weather is taken from the weather events as it changes, and subscribers are told about
+ * each transition once, rather than every rule polling the world per player.
+ *
+ * Main thread only.
+ */
+public class WorldStateManager implements Listener {
+    private final CrystalPowersPlugin plugin;
+    private final Map<UUID, WorldState> states;
+    private final Map<WorldState.Transition, List<Consumer<WorldState>>> subscribers;
+    private BukkitTask task;
+    
+    public WorldStateManager(CrystalPowersPlugin plugin) {
+        this.plugin = plugin;
+        this.states = new HashMap<>();
+        this.subscribers = new EnumMap<>(WorldState.Transition.class);
+    }
+    
+    /**
+     * Track every loaded world and start following the time of day
+     */
+    public void start() {
+        for (World world : plugin.getServer().getWorlds()) {
+            getState(world);
+        }
+        if (task == null) {
+            task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+        }
+    }
+    
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+    
+    /**
+     * Current state of a world, tracking it from now on if it was not yet
+     */
+    public WorldState getState(World world) {
+        return states.computeIfAbsent(world.getUID(), id -> new WorldState(world));
+    }
+    
+    /**
+     * Call the subscriber with the world's state each time the transition happens in any world
+     */
+    public void subscribe(WorldState.Transition transition, Consumer<WorldState> subscriber) {
+        subscribers.computeIfAbsent(transition, t -> new ArrayList<>()).add(subscriber);
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWeatherChange(WeatherChangeEvent event) {
+        WorldState state = getState(event.getWorld());
+        updateStorm(state, event.toWeatherState());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onThunderChange(ThunderChangeEvent event) {
+        WorldState state = getState(event.getWorld());
+        updateThunder(state, event.toThunderState());
+    }
+    
+    @EventHandler
+    public void onWorldLoad(WorldLoadEvent event) {
+        getState(event.getWorld());
+    }
+    
+    @EventHandler
+    public void onWorldUnload(WorldUnloadEvent event) {
+        states.remove(event.getWorld().getUID());
+    }
+    
+    private void tick() {
+        for (WorldState state : states.values()) {
+            World world = state.getWorld();
+            boolean wasDay = state.isDay();
+            state.setTime(world.getTime());
+            if (state.isDay() != wasDay) {
+                publish(state.isDay() ? WorldState.Transition.DAY_BEGAN : WorldState.Transition.NIGHT_BEGAN, state);
+            }
+            
+            // Weather normally arrives through the events; this only catches anything they missed
+            updateStorm(state, world.hasStorm());
+            updateThunder(state, world.isThundering());
+        }
+    }
+    
+    private void updateStorm(WorldState state, boolean storm) {
+        if (state.hasStorm() != storm) {
+            state.setStorm(storm);
+            publish(storm ? WorldState.Transition.STORM_BEGAN : WorldState.Transition.STORM_ENDED, state);
+        }
+    }
+    
+    private void updateThunder(WorldState state, boolean thundering) {
+        if (state.isThundering() != thundering) {
+            state.setThundering(thundering);
+            publish(thundering ? WorldState.Transition.THUNDER_BEGAN : WorldState.Transition.THUNDER_ENDED, state);
+        }
+    }
+    
+    private void publish(WorldState.Transition transition, WorldState state) {
+        List<Consumer<WorldState>> list = subscribers.get(transition);
+        if (list == null) {
+            return;
+        }
+        for (Consumer<WorldState> subscriber : list) {
+            try {
+                subscriber.accept(state);
+            } catch (Exception e) {
+                plugin.getLogger().warning("World state subscriber failed on " + transition + " in " + state.getWorld().getName() + ": " + e);
+            }
+        }
+    }
+}
@@ -73,6 +73,7 @@ public class CrystalPower {
         private boolean burnsInSunlight = false;
         private boolean invisibleInDarkness = false;
         private int maxHealth = 20;
+        // Above 1 gives Dolphin's Grace in water, whose boost is fixed - the figure itself is not used
         private float swimSpeed = 1.0f;
         private float landSpeed = 1.0f;
         private final List<Material> weakTo = new ArrayList<>();
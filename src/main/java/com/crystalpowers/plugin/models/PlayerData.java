@@ -2,17 +2,23 @@ package com.crystalpowers.plugin.models;
 
 import java.util.UUID;
 
+/**
+ * A player's crystal power choice. Records read from a store are standalone; the ones
+ * PlayerDataManager hands out are views onto its cache and override every accessor.
+ */
 public class PlayerData {
     private final UUID playerId;
     private String crystalPowerId;
     private boolean hasSelectedCrystalPower;
     private long lastCrystalPowerChange;
+    private boolean dirty;
     
     public PlayerData(UUID playerId) {
         this.playerId = playerId;
         this.crystalPowerId = null;
         this.hasSelectedCrystalPower = false;
         this.lastCrystalPowerChange = 0;
+        this.dirty = false;
     }
     
     public UUID getPlayerId() {
@@ -27,6 +33,7 @@ public class PlayerData {
         this.crystalPowerId = crystalPowerId;
         this.hasSelectedCrystalPower = true;
         this.lastCrystalPowerChange = System.currentTimeMillis();
+        this.dirty = true;
     }
     
     public boolean hasSelectedCrystalPower() {
@@ -40,6 +47,21 @@ public class PlayerData {
     public boolean canChangeCrystalPower() {
         // Allow changing crystal power once every 24 hours (configurable)
         long cooldown = 24 * 60 * 60 * 1000; // 24 hours in milliseconds
-        return System.currentTimeMillis() - lastCrystalPowerChange > cooldown;
+        return System.currentTimeMillis() - getLastCrystalPowerChange() > cooldown;
+    }
+    
+    /**
+     * Whether this record has changed since it was last written to disk
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+    
+    public void markDirty() {
+        this.dirty = true;
+    }
+    
+    public void markClean() {
+        this.dirty = false;
     }
 }
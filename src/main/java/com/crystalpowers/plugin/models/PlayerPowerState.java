@@ -0,0 +1,73 @@
+package com.crystalpowers.plugin.models;
+
+import com.crystalpowers.plugin.abilities.AbilitySet;
+import org.bukkit.Material;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * An online player's crystal power, resolved once from their PlayerData so event handlers
+ * need no registry lookup or string comparison, along with the power's compiled abilities. Rebuilt by PlayerDataManager when the
+ * player's power changes or the crystal powers are reloaded.
+ */
+public final class PlayerPowerState {
+    private final UUID playerId;
+    private final CrystalPower crystalPower;
+    private final CrystalPower.CrystalPowerProperties properties;
+    private final boolean avian;
+    private final boolean enderian;
+    private final boolean arachnid;
+    private final boolean merling;
+    private final boolean elytrian;
+    private final boolean phantom;
+    private final boolean takesWaterDamage;
+    private final boolean takesSunDamage;
+    private final double damageMultiplier;
+    private final Set<Material> weakTo;
+    private final AbilitySet abilities;
+    
+    public PlayerPowerState(UUID playerId, CrystalPower crystalPower, AbilitySet abilities) {
+        this.playerId = playerId;
+        this.crystalPower = crystalPower;
+        this.properties = crystalPower.getProperties();
+        
+        String id = crystalPower.getId();
+        this.avian = id.equals("avian");
+        this.enderian = id.equals("enderian");
+        this.arachnid = id.equals("arachnid");
+        this.merling = id.equals("merling");
+        this.elytrian = id.equals("elytrian");
+        this.phantom = id.equals("phantom");
+        this.takesWaterDamage = properties.takesWaterDamage();
+        this.takesSunDamage = properties.takesSunDamage();
+        this.damageMultiplier = properties.getDamageMultiplier();
+        this.weakTo = properties.getWeakTo().isEmpty() ? EnumSet.noneOf(Material.class) : EnumSet.copyOf(properties.getWeakTo());
+        this.abilities = abilities;
+    }
+    
+    // Getters
+    public UUID getPlayerId() { return playerId; }
+    public CrystalPower getCrystalPower() { return crystalPower; }
+    public CrystalPower.CrystalPowerProperties getProperties() { return properties; }
+    public boolean isAvian() { return avian; }
+    public boolean isEnderian() { return enderian; }
+    public boolean isArachnid() { return arachnid; }
+    public boolean isMerling() { return merling; }
+    public boolean isElytrian() { return elytrian; }
+    public boolean isPhantom() { return phantom; }
+    public boolean takesWaterDamage() { return takesWaterDamage; }
+    public boolean takesSunDamage() { return takesSunDamage; }
+    public double getDamageMultiplier() { return damageMultiplier; }
+    public boolean hasDamageMultiplier() { return damageMultiplier != 1.0; }
+    
+    public boolean isWeakTo(Material material) {
+        return weakTo.contains(material);
+    }
+    
+    /**
+     * Handlers for the power's abilities, by trigger
+     */
+    public AbilitySet getAbilities() { return abilities; }
+}
@@ -0,0 +1,59 @@
+package com.crystalpowers.plugin.models;
+
+import org.bukkit.World;
+
+/**
+ * Time of day and weather of one world, as last seen by WorldStateManager.
+ * Read by ability rules instead of querying the world for every player.
+ */
+public final class WorldState {
+    private final World world;
+    private long time;
+    private boolean day;
+    private boolean storm;
+    private boolean thundering;
+    
+    public WorldState(World world) {
+        this.world = world;
+        this.time = world.getTime();
+        this.day = isDayTime(time);
+        this.storm = world.hasStorm();
+        this.thundering = world.isThundering();
+    }
+    
+    /**
+     * Whether a world time falls in the day, when sunlight burns
+     */
+    public static boolean isDayTime(long time) {
+        return time > 0 && time < 12000;
+    }
+    
+    // Getters
+    public World getWorld() { return world; }
+    public long getTime() { return time; }
+    public boolean isDay() { return day; }
+    public boolean isNight() { return !day; }
+    public boolean hasStorm() { return storm; }
+    public boolean isThundering() { return thundering; }
+    
+    // Updated by WorldStateManager only
+    public void setTime(long time) {
+        this.time = time;
+        this.day = isDayTime(time);
+    }
+    
+    public void setStorm(boolean storm) { this.storm = storm; }
+    public void setThundering(boolean thundering) { this.thundering = thundering; }
+    
+    /**
+     * A change in a world's state that rules can subscribe to
+     */
+    public enum Transition {
+        DAY_BEGAN,
+        NIGHT_BEGAN,
+        STORM_BEGAN,
+        STORM_ENDED,
+        THUNDER_BEGAN,
+        THUNDER_ENDED
+    }
+}
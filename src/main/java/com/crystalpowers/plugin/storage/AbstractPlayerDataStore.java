@@ -0,0 +1,161 @@
+package com.crystalpowers.plugin.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+
+/**
+ * Base for stores that run their I/O on a single serial lane of a {@link StorageExecutor}.
+ * One lane per store keeps writes in submission order without any extra locking.
+ */
+public abstract class AbstractPlayerDataStore implements PlayerDataStore {
+    protected final Logger logger;
+    private final StorageExecutor ownExecutor;
+    private final StorageExecutor.Lane ioLane;
+
+    /**
+     * @param executor Executor shared with other stores, or null to give this store a thread of its own
+     */
+    protected AbstractPlayerDataStore(String threadName, StorageExecutor executor, Logger logger) {
+        this.logger = logger;
+        this.ownExecutor = executor == null ? new StorageExecutor(threadName, 1, 0, 0, () -> true, logger) : null;
+        this.ioLane = (executor != null ? executor : ownExecutor).newLane();
+    }
+
+    @Override
+    public CompletableFuture<Void> open() {
+        return submit(() -> {
+            openStore();
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> saveAll(Map<UUID, String> records) {
+        return submit(() -> {
+            writeRecords(records);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<UUID>> findPlayersWithPower(String crystalPowerId) {
+        return submit(() -> {
+            List<UUID> playerIds = new ArrayList<>();
+            visitRecords((uuid, storedPowerId) -> {
+                if (crystalPowerId.equals(storedPowerId)) {
+                    playerIds.add(uuid);
+                }
+            });
+            return playerIds;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> forEach(BiConsumer<UUID, String> consumer) {
+        return submit(() -> {
+            visitRecords(consumer);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<RecordPage> readPage(UUID after, int limit) {
+        return submit(() -> readRecords(after, Math.max(1, limit)));
+    }
+
+    @Override
+    public CompletableFuture<Integer> count() {
+        return submit(this::countRecords);
+    }
+
+    /**
+     * Close once everything queued before this call has run. Never turned away by a full queue.
+     */
+    @Override
+    public void close(long timeout, TimeUnit unit) {
+        CompletableFuture<Void> closed = new CompletableFuture<>();
+        try {
+            ioLane.executeUnbounded(() -> {
+                try {
+                    closeStore();
+                    closed.complete(null);
+                } catch (Throwable e) {
+                    closed.completeExceptionally(e);
+                }
+            });
+            closed.get(timeout, unit);
+        } catch (RejectedExecutionException e) {
+            logger.severe("Could not close " + getName() + ": storage executor is already shut down");
+        } catch (TimeoutException e) {
+            logger.severe("Timed out waiting for " + getName() + " to close!");
+        } catch (ExecutionException e) {
+            logger.severe("Could not close " + getName() + ": " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (ownExecutor != null) {
+            ownExecutor.shutdown(timeout, unit);
+        }
+    }
+
+    protected abstract void openStore() throws Exception;
+
+    /**
+     * Write a batch of changes. Runs on the I/O thread.
+     */
+    protected abstract void writeRecords(Map<UUID, String> records) throws Exception;
+
+    /**
+     * Visit every record with its decoded crystal power ID. Runs on the I/O thread.
+     */
+    protected abstract void visitRecords(BiConsumer<UUID, String> consumer) throws Exception;
+
+    /**
+     * Read up to limit records following the given player. Runs on the I/O thread.
+     * @param after The last player of the previous page, or null for the first page
+     */
+    protected abstract RecordPage readRecords(UUID after, int limit) throws Exception;
+
+    /**
+     * Number of stored records. Runs on the I/O thread.
+     */
+    protected abstract int countRecords() throws Exception;
+
+    protected abstract void closeStore() throws Exception;
+
+    /**
+     * Run a task on the store's I/O lane. Fails with {@link RejectedExecutionException}
+     * when the storage queue is full.
+     */
+    protected <T> CompletableFuture<T> submit(StoreTask<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            ioLane.execute(() -> {
+                try {
+                    future.complete(task.call());
+                } catch (Throwable e) {
+                    // Errors too, otherwise callers would wait on the future forever
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    @FunctionalInterface
+    protected interface StoreTask<T> {
+        T call() throws Exception;
+    }
+}
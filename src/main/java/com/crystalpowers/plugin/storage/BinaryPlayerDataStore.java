@@ -0,0 +1,415 @@
+package com.crystalpowers.plugin.storage;
+
+import com.crystalpowers.plugin.models.PlayerData;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+
+/**
+ * Compact binary player data file, memory-mapped for single-player lookups.
+ *
+ * Layout:
+ *   int    magic
+ *   byte   version
+ *   byte   power count, then per power: byte length + UTF-8 id (the ordinal dictionary)
+ *   int    record count
+ *   record count x { long uuidMost, long uuidLeast, byte ordinal } sorted by UUID
+ *
+ * Records are fixed size and sorted, so a lookup is a binary search over the mapped file.
+ * Changes to existing records are written in place; new players or unknown power ids
+ * trigger a rewrite of the whole file. Lookups read the mapping directly from the
+ * calling thread; writes run on the store's I/O thread.
+ *
+ * A rewrite unmaps the old file before replacing it, since a mapped file cannot be
+ * replaced on Windows. Lookups hold the read lock while they touch the mapping so it is
+ * never unmapped under them.
+ *
+ * Crystal powers are stored unencrypted - encryption.enabled does not apply to this store.
+ */
+public class BinaryPlayerDataStore extends AbstractPlayerDataStore {
+    private static final int MAGIC = 0x43505744; // "CPWD"
+    private static final byte VERSION = 1;
+    private static final int RECORD_SIZE = 17;
+    private static final byte NO_POWER = (byte) 0xFF;
+    private static final int MAX_POWERS = 255;
+    
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+    
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Not available on this JVM - old mappings are released by the garbage collector
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+    
+    private final File dataFile;
+    private final ReadWriteLock mappingLock = new ReentrantReadWriteLock();
+    private volatile Snapshot snapshot;
+    
+    /**
+     * @param executor Executor shared with other stores, or null to give this store a thread of its own
+     */
+    public BinaryPlayerDataStore(File dataFile, StorageExecutor executor, Logger logger) {
+        super("CrystalPowers-Binary", executor, logger);
+        this.dataFile = dataFile;
+    }
+    
+    @Override
+    public String getName() {
+        return dataFile.getName();
+    }
+    
+    @Override
+    public boolean exists() {
+        return dataFile.exists();
+    }
+    
+    @Override
+    public boolean isEncrypted() {
+        // Crystal powers are kept as ordinals into an unencrypted dictionary
+        return false;
+    }
+    
+    @Override
+    protected void openStore() throws IOException {
+        dataFile.getParentFile().mkdirs();
+        map();
+        logger.info("Opened " + dataFile.getName() + " with " + size() + " player data entries");
+    }
+    
+    /**
+     * Map the data file into memory, creating an empty one if needed
+     */
+    private void map() throws IOException {
+        if (!dataFile.exists()) {
+            rewrite(new TreeMap<>());
+            return;
+        }
+        
+        try (FileChannel channel = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            
+            if (buffer.getInt(0) != MAGIC || buffer.get(4) != VERSION) {
+                throw new IOException("Not a crystal powers data file: " + dataFile.getName());
+            }
+            
+            int position = 5;
+            int powerCount = buffer.get(position++) & 0xFF;
+            List<String> powers = new ArrayList<>(powerCount);
+            for (int i = 0; i < powerCount; i++) {
+                int length = buffer.get(position++) & 0xFF;
+                byte[] idBytes = new byte[length];
+                buffer.get(position, idBytes);
+                position += length;
+                powers.add(new String(idBytes, StandardCharsets.UTF_8));
+            }
+            
+            int recordCount = buffer.getInt(position);
+            position += 4;
+            
+            if (position + (long) recordCount * RECORD_SIZE > buffer.capacity()) {
+                throw new IOException("Truncated crystal powers data file: " + dataFile.getName());
+            }
+            
+            snapshot = new Snapshot(buffer, powers, position, recordCount);
+        }
+    }
+    
+    /**
+     * Look up a single player without loading the rest of the file. Completes immediately.
+     */
+    @Override
+    public CompletableFuture<PlayerData> load(UUID playerId) {
+        String crystalPowerId;
+        mappingLock.readLock().lock();
+        try {
+            Snapshot current = snapshot;
+            int index = current == null ? -1 : current.indexOf(playerId);
+            if (index < 0) {
+                return CompletableFuture.completedFuture(null);
+            }
+            crystalPowerId = current.powerAt(index);
+        } finally {
+            mappingLock.readLock().unlock();
+        }
+        
+        PlayerData data = new PlayerData(playerId);
+        if (crystalPowerId != null) {
+            data.setCrystalPowerId(crystalPowerId);
+            data.markClean();
+        }
+        return CompletableFuture.completedFuture(data);
+    }
+    
+    /**
+     * Visit every stored record in UUID order
+     */
+    @Override
+    protected void visitRecords(BiConsumer<UUID, String> consumer) {
+        mappingLock.readLock().lock();
+        try {
+            Snapshot current = snapshot;
+            if (current == null) {
+                return;
+            }
+            
+            for (int i = 0; i < current.recordCount; i++) {
+                consumer.accept(current.uuidAt(i), current.powerAt(i));
+            }
+        } finally {
+            mappingLock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Read the records that follow the given player in UUID order
+     */
+    @Override
+    protected RecordPage readRecords(UUID after, int limit) {
+        mappingLock.readLock().lock();
+        try {
+            Snapshot current = snapshot;
+            if (current == null) {
+                return new RecordPage(new LinkedHashMap<>(), after, true);
+            }
+            
+            int from = 0;
+            if (after != null) {
+                int index = current.indexOf(after);
+                from = index >= 0 ? index + 1 : -(index + 1);
+            }
+            int to = Math.min(current.recordCount, from + limit);
+            
+            Map<UUID, String> records = new LinkedHashMap<>();
+            UUID last = after;
+            for (int i = from; i < to; i++) {
+                last = current.uuidAt(i);
+                records.put(last, current.powerAt(i));
+            }
+            return new RecordPage(records, last, to == current.recordCount);
+        } finally {
+            mappingLock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    protected int countRecords() {
+        return size();
+    }
+    
+    public int size() {
+        Snapshot current = snapshot;
+        return current == null ? 0 : current.recordCount;
+    }
+    
+    /**
+     * Persist a batch of changes
+     * @param records Crystal power IDs keyed by player, null meaning the power was cleared
+     */
+    @Override
+    protected void writeRecords(Map<UUID, String> records) throws IOException {
+        // The mapping is only replaced on this thread, so in-place writes need no lock
+        Snapshot current = snapshot;
+        if (current == null) {
+            throw new IllegalStateException("Binary player data store is not open");
+        }
+        
+        // Update existing records in place where possible
+        boolean needsRewrite = false;
+        for (Map.Entry<UUID, String> entry : records.entrySet()) {
+            int index = current.indexOf(entry.getKey());
+            int ordinal = entry.getValue() == null ? NO_POWER & 0xFF : current.powers.indexOf(entry.getValue());
+            if (index < 0 || ordinal < 0) {
+                needsRewrite = true;
+                break;
+            }
+            current.buffer.put(current.recordOffset(index) + 16, (byte) ordinal);
+        }
+        
+        if (!needsRewrite) {
+            current.buffer.force();
+            return;
+        }
+        
+        TreeMap<UUID, String> merged = new TreeMap<>();
+        visitRecords(merged::put);
+        merged.putAll(records);
+        rewrite(merged);
+    }
+    
+    @Override
+    protected void closeStore() {
+        unmap();
+    }
+    
+    /**
+     * Drop the current mapping and release it right away, so the file can be replaced.
+     * Waits for lookups still reading it.
+     */
+    private void unmap() {
+        mappingLock.writeLock().lock();
+        try {
+            Snapshot current = snapshot;
+            snapshot = null;
+            if (current != null && INVOKE_CLEANER != null) {
+                try {
+                    INVOKE_CLEANER.invoke(UNSAFE, current.buffer);
+                } catch (ReflectiveOperationException e) {
+                    logger.warning("Could not unmap " + dataFile.getName() + ", it is released once garbage collected: " + e.getMessage());
+                }
+            }
+        } finally {
+            mappingLock.writeLock().unlock();
+        }
+    }
+    
+    private void rewrite(TreeMap<UUID, String> records) throws IOException {
+        List<String> powers = new ArrayList<>();
+        for (String crystalPowerId : records.values()) {
+            if (crystalPowerId != null && !powers.contains(crystalPowerId)) {
+                powers.add(crystalPowerId);
+            }
+        }
+        if (powers.size() > MAX_POWERS) {
+            throw new IOException("Too many distinct crystal powers for the binary format: " + powers.size());
+        }
+        
+        int headerSize = 4 + 1 + 1 + 4;
+        List<byte[]> encodedPowers = new ArrayList<>(powers.size());
+        for (String crystalPowerId : powers) {
+            byte[] idBytes = crystalPowerId.getBytes(StandardCharsets.UTF_8);
+            encodedPowers.add(idBytes);
+            headerSize += 1 + idBytes.length;
+        }
+        
+        ByteBuffer out = ByteBuffer.allocate(headerSize + records.size() * RECORD_SIZE);
+        out.putInt(MAGIC);
+        out.put(VERSION);
+        out.put((byte) powers.size());
+        for (byte[] idBytes : encodedPowers) {
+            out.put((byte) idBytes.length);
+            out.put(idBytes);
+        }
+        out.putInt(records.size());
+        for (Map.Entry<UUID, String> entry : records.entrySet()) {
+            out.putLong(entry.getKey().getMostSignificantBits());
+            out.putLong(entry.getKey().getLeastSignificantBits());
+            out.put(entry.getValue() == null ? NO_POWER : (byte) powers.indexOf(entry.getValue()));
+        }
+        out.flip();
+        
+        File tempFile = new File(dataFile.getParentFile(), dataFile.getName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(true);
+        }
+        
+        // Lookups wait for the new mapping instead of finding no record
+        mappingLock.writeLock().lock();
+        try {
+            unmap();
+            try {
+                Files.move(tempFile.toPath(), dataFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                // Maps the old file again if the move failed
+                if (dataFile.exists()) {
+                    map();
+                }
+            }
+        } finally {
+            mappingLock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Immutable view of one mapping of the data file
+     */
+    private static class Snapshot {
+        private final MappedByteBuffer buffer;
+        private final List<String> powers;
+        private final int recordsOffset;
+        private final int recordCount;
+        
+        private Snapshot(MappedByteBuffer buffer, List<String> powers, int recordsOffset, int recordCount) {
+            this.buffer = buffer;
+            this.powers = powers;
+            this.recordsOffset = recordsOffset;
+            this.recordCount = recordCount;
+        }
+        
+        private int recordOffset(int index) {
+            return recordsOffset + index * RECORD_SIZE;
+        }
+        
+        private UUID uuidAt(int index) {
+            int offset = recordOffset(index);
+            return new UUID(buffer.getLong(offset), buffer.getLong(offset + 8));
+        }
+        
+        private String powerAt(int index) {
+            int ordinal = buffer.get(recordOffset(index) + 16) & 0xFF;
+            return ordinal < powers.size() ? powers.get(ordinal) : null;
+        }
+        
+        /**
+         * Binary search for a player, using the same ordering as UUID.compareTo
+         */
+        private int indexOf(UUID playerId) {
+            long most = playerId.getMostSignificantBits();
+            long least = playerId.getLeastSignificantBits();
+            int low = 0;
+            int high = recordCount - 1;
+            
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int offset = recordOffset(mid);
+                int compare = Long.compare(buffer.getLong(offset), most);
+                if (compare == 0) {
+                    compare = Long.compare(buffer.getLong(offset + 8), least);
+                }
+                
+                if (compare < 0) {
+                    low = mid + 1;
+                } else if (compare > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+}
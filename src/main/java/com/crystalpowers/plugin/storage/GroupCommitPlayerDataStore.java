@@ -0,0 +1,248 @@
+package com.crystalpowers.plugin.storage;
+
+import com.crystalpowers.plugin.models.PlayerData;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Coalesces writes that arrive within a short window into a single write to the wrapped store.
+ * The first save in a window starts a timer; every save until it fires joins the same batch,
+ * so a burst of power selections costs one write and one fsync instead of one each.
+ * Each caller's future completes once the batch holding its change is durable.
+ * Lookups see changes that are still batched or being written, so a record that was
+ * marked clean by its caller is never read back stale.
+ */
+public class GroupCommitPlayerDataStore implements PlayerDataStore {
+    private final PlayerDataStore delegate;
+    private final long windowMillis;
+    private final ScheduledExecutorService timer;
+    private final Object batchLock;
+    private final Object flushLock;
+    private final AtomicLong commits;
+    private final AtomicLong committedChanges;
+    // Batches handed to the wrapped store that it has not finished writing, oldest first
+    private final Deque<Map<UUID, String>> inFlight;
+    private Map<UUID, String> pending;
+    private List<CompletableFuture<Void>> waiters;
+    private boolean flushScheduled;
+    
+    public GroupCommitPlayerDataStore(PlayerDataStore delegate, long windowMillis) {
+        this.delegate = delegate;
+        this.windowMillis = windowMillis;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "CrystalPowers-GroupCommit");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.batchLock = new Object();
+        this.flushLock = new Object();
+        this.commits = new AtomicLong();
+        this.committedChanges = new AtomicLong();
+        this.inFlight = new ArrayDeque<>();
+        this.pending = new LinkedHashMap<>();
+        this.waiters = new ArrayList<>();
+    }
+    
+    /**
+     * The store batches are written to
+     */
+    public PlayerDataStore getDelegate() {
+        return delegate;
+    }
+    
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+    
+    /**
+     * Number of batches written so far
+     */
+    public long getCommitCount() {
+        return commits.get();
+    }
+    
+    /**
+     * Number of player changes written so far, after coalescing repeated changes to the same player
+     */
+    public long getCommittedChangeCount() {
+        return committedChanges.get();
+    }
+    
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+    
+    @Override
+    public boolean exists() {
+        return delegate.exists();
+    }
+    
+    @Override
+    public boolean isEncrypted() {
+        return delegate.isEncrypted();
+    }
+    
+    @Override
+    public CompletableFuture<Void> open() {
+        return delegate.open();
+    }
+    
+    /**
+     * Serve the player from the current batch or a batch still being written if either
+     * holds a change for them, and from the wrapped store otherwise
+     */
+    @Override
+    public CompletableFuture<PlayerData> load(UUID playerId) {
+        synchronized (batchLock) {
+            if (pending.containsKey(playerId)) {
+                return CompletableFuture.completedFuture(toPlayerData(playerId, pending.get(playerId)));
+            }
+            Iterator<Map<UUID, String>> newestFirst = inFlight.descendingIterator();
+            while (newestFirst.hasNext()) {
+                Map<UUID, String> batch = newestFirst.next();
+                if (batch.containsKey(playerId)) {
+                    return CompletableFuture.completedFuture(toPlayerData(playerId, batch.get(playerId)));
+                }
+            }
+        }
+        return delegate.load(playerId);
+    }
+    
+    private static PlayerData toPlayerData(UUID playerId, String crystalPowerId) {
+        PlayerData data = new PlayerData(playerId);
+        if (crystalPowerId != null) {
+            data.setCrystalPowerId(crystalPowerId);
+            data.markClean();
+        }
+        return data;
+    }
+    
+    /**
+     * Add the records to the current batch
+     * @return Completes once the batch has been written
+     */
+    @Override
+    public CompletableFuture<Void> saveAll(Map<UUID, String> records) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        boolean writeThrough = false;
+        synchronized (batchLock) {
+            pending.putAll(records);
+            waiters.add(future);
+            
+            if (!flushScheduled) {
+                flushScheduled = true;
+                try {
+                    timer.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+                } catch (Exception e) {
+                    // Closing - write straight through instead
+                    writeThrough = true;
+                }
+            }
+        }
+        if (writeThrough) {
+            flush();
+        }
+        return future;
+    }
+    
+    @Override
+    public CompletableFuture<List<UUID>> findPlayersWithPower(String crystalPowerId) {
+        return delegate.findPlayersWithPower(crystalPowerId);
+    }
+    
+    @Override
+    public CompletableFuture<Void> forEach(BiConsumer<UUID, String> consumer) {
+        return delegate.forEach(consumer);
+    }
+    
+    @Override
+    public CompletableFuture<RecordPage> readPage(UUID after, int limit) {
+        return delegate.readPage(after, limit);
+    }
+    
+    @Override
+    public CompletableFuture<Integer> count() {
+        return delegate.count();
+    }
+    
+    @Override
+    public CompletableFuture<Integer> reencrypt(Collection<UUID> playerIds) {
+        return delegate.reencrypt(playerIds);
+    }
+    
+    /**
+     * Write out the current batch first, so it is part of the compacted data
+     */
+    @Override
+    public CompletableFuture<Void> compact() {
+        flush();
+        return delegate.compact();
+    }
+    
+    /**
+     * Write out the current batch without waiting for the window to end, then close the wrapped store
+     */
+    @Override
+    public void close(long timeout, TimeUnit unit) {
+        timer.shutdownNow();
+        flush();
+        delegate.close(timeout, unit);
+    }
+    
+    /**
+     * Hand the current batch to the wrapped store. flushLock keeps batches reaching the store
+     * in the order they were collected; batchLock is only held to take the batch, so saves
+     * never wait while the store waits for room in a full storage queue.
+     */
+    private void flush() {
+        synchronized (flushLock) {
+            Map<UUID, String> batch;
+            List<CompletableFuture<Void>> batchWaiters;
+            synchronized (batchLock) {
+                flushScheduled = false;
+                if (waiters.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                batchWaiters = waiters;
+                pending = new LinkedHashMap<>();
+                waiters = new ArrayList<>();
+                inFlight.addLast(batch);
+            }
+            write(batch, batchWaiters);
+        }
+    }
+    
+    private void write(Map<UUID, String> batch, List<CompletableFuture<Void>> batchWaiters) {
+        commits.incrementAndGet();
+        committedChanges.addAndGet(batch.size());
+        delegate.saveAll(batch).whenComplete((result, error) -> {
+            // Written or failed - a failed batch is requeued by the caller, which still holds the change
+            synchronized (batchLock) {
+                inFlight.removeIf(inFlightBatch -> inFlightBatch == batch);
+            }
+            for (CompletableFuture<Void> waiter : batchWaiters) {
+                if (error != null) {
+                    waiter.completeExceptionally(error);
+                } else {
+                    waiter.complete(null);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,30 @@
+package com.crystalpowers.plugin.storage;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count, mean and maximum latency of one kind of operation
+ */
+final class LatencyStats {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    
+    void record(long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        count.increment();
+        totalNanos.add(elapsed);
+        maxNanos.accumulateAndGet(elapsed, Math::max);
+    }
+    
+    @Override
+    public String toString() {
+        long operations = count.sum();
+        if (operations == 0) {
+            return "n/a";
+        }
+        return String.format("%d ops, avg %.2fms, max %.2fms", operations,
+            totalNanos.sum() / (double) operations / 1_000_000, maxNanos.get() / 1_000_000.0);
+    }
+}
@@ -0,0 +1,104 @@
+package com.crystalpowers.plugin.storage;
+
+import com.crystalpowers.plugin.utils.EncryptionUtil;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.logging.Logger;
+
+/**
+ * Decodes raw player data records in parallel.
+ * UUID parsing and decryption are split into partitions on a ForkJoin pool and the
+ * results are merged into a single map, which the caller publishes in one step.
+ */
+public class ParallelPlayerDataLoader {
+    private static final int PARTITION_SIZE = 512;
+    
+    private final Logger logger;
+    private final int parallelism;
+    
+    public ParallelPlayerDataLoader(Logger logger) {
+        this(logger, Runtime.getRuntime().availableProcessors());
+    }
+    
+    public ParallelPlayerDataLoader(Logger logger, int parallelism) {
+        this.logger = logger;
+        this.parallelism = Math.max(1, parallelism);
+    }
+    
+    /**
+     * Parse and decrypt every record
+     * @param rawRecords Stored values keyed by UUID string, a null value meaning no crystal power
+     * @return Crystal power IDs keyed by player. Records that fail to parse or decrypt are skipped.
+     */
+    public Map<UUID, String> load(Map<String, String> rawRecords) {
+        long start = System.nanoTime();
+        Map<UUID, String> decoded = decode(rawRecords);
+        
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        logger.info("Decoded " + decoded.size() + " of " + rawRecords.size() + " player data entries in " +
+                   elapsedMillis + "ms using " + parallelism + " threads");
+        return decoded;
+    }
+    
+    /**
+     * Same as {@link #load} without logging, for callers that decode a file in chunks
+     */
+    public Map<UUID, String> decode(Map<String, String> rawRecords) {
+        List<Map.Entry<String, String>> entries = new ArrayList<>(rawRecords.entrySet());
+        
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.invoke(new DecodeTask(entries, 0, entries.size()));
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    private class DecodeTask extends RecursiveTask<Map<UUID, String>> {
+        private final List<Map.Entry<String, String>> entries;
+        private final int from;
+        private final int to;
+        
+        private DecodeTask(List<Map.Entry<String, String>> entries, int from, int to) {
+            this.entries = entries;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected Map<UUID, String> compute() {
+            if (to - from > PARTITION_SIZE) {
+                int middle = (from + to) >>> 1;
+                DecodeTask left = new DecodeTask(entries, from, middle);
+                left.fork();
+                Map<UUID, String> right = new DecodeTask(entries, middle, to).compute();
+                Map<UUID, String> result = left.join();
+                result.putAll(right);
+                return result;
+            }
+            
+            Map<UUID, String> parsed = new HashMap<>((to - from) * 2);
+            for (int i = from; i < to; i++) {
+                Map.Entry<String, String> entry = entries.get(i);
+                try {
+                    parsed.put(UUID.fromString(entry.getKey()), entry.getValue());
+                } catch (IllegalArgumentException e) {
+                    logger.warning("Invalid UUID in player data: " + entry.getKey());
+                }
+            }
+            
+            if (!EncryptionUtil.isInitialized()) {
+                return parsed;
+            }
+            // One batch per partition, so each worker reuses its own cipher
+            return EncryptionUtil.decryptAll(parsed, (uuid, e) ->
+                logger.warning("Failed to decrypt crystal power for player " + uuid + ": " + e.getMessage()));
+        }
+    }
+}
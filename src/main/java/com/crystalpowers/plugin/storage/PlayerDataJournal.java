@@ -0,0 +1,129 @@
+package com.crystalpowers.plugin.storage;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+
+/**
+ * Append-only log of crystal power changes.
+ * Each line is either "S <uuid> <value>" (power selected) or "C <uuid>" (power cleared or reset).
+ * The journal is replayed on top of the playerdata.yml snapshot at startup and truncated after compaction.
+ */
+public class PlayerDataJournal {
+    private static final char OP_SELECT = 'S';
+    private static final char OP_CLEAR = 'C';
+    
+    private final File journalFile;
+    private final Logger logger;
+    private FileChannel channel;
+    
+    public PlayerDataJournal(File journalFile, Logger logger) {
+        this.journalFile = journalFile;
+        this.logger = logger;
+    }
+    
+    /**
+     * Replay every entry in the journal in order
+     * @param consumer Receives the player UUID and stored value, or null if the power was cleared
+     * @return Number of entries replayed
+     */
+    public int replay(BiConsumer<UUID, String> consumer) throws IOException {
+        if (!journalFile.exists()) {
+            return 0;
+        }
+        
+        int replayed = 0;
+        try (BufferedReader reader = Files.newBufferedReader(journalFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                
+                String[] parts = line.split(" ", 3);
+                try {
+                    UUID uuid = UUID.fromString(parts[1]);
+                    if (line.charAt(0) == OP_SELECT && parts.length == 3) {
+                        consumer.accept(uuid, parts[2]);
+                    } else if (line.charAt(0) == OP_CLEAR) {
+                        consumer.accept(uuid, null);
+                    } else {
+                        throw new IllegalArgumentException("Unknown operation");
+                    }
+                    replayed++;
+                } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                    // A torn write at the end of the file after a crash is expected - skip it
+                    logger.warning("Skipping malformed journal entry: " + line);
+                }
+            }
+        }
+        return replayed;
+    }
+    
+    /**
+     * Append a batch of changes and force them to disk
+     * @param records Stored values keyed by player, null meaning the power was cleared
+     */
+    public void append(Map<UUID, String> records) throws IOException {
+        StringBuilder batch = new StringBuilder(records.size() * 64);
+        for (Map.Entry<UUID, String> entry : records.entrySet()) {
+            if (entry.getValue() != null) {
+                batch.append(OP_SELECT).append(' ').append(entry.getKey()).append(' ').append(entry.getValue());
+            } else {
+                batch.append(OP_CLEAR).append(' ').append(entry.getKey());
+            }
+            batch.append('\n');
+        }
+        
+        ByteBuffer buffer = ByteBuffer.wrap(batch.toString().getBytes(StandardCharsets.UTF_8));
+        FileChannel out = openChannel();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        out.force(false);
+    }
+    
+    /**
+     * Current size of the journal in bytes
+     */
+    public long size() {
+        return journalFile.length();
+    }
+    
+    /**
+     * Discard all entries. Only call once the snapshot contains them.
+     */
+    public void truncate() throws IOException {
+        openChannel().truncate(0);
+    }
+    
+    public void close() {
+        if (channel == null) {
+            return;
+        }
+        
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.warning("Could not close journal file: " + e.getMessage());
+        }
+        channel = null;
+    }
+    
+    private FileChannel openChannel() throws IOException {
+        if (channel == null || !channel.isOpen()) {
+            channel = FileChannel.open(journalFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+}
@@ -0,0 +1,157 @@
+package com.crystalpowers.plugin.storage;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+
+/**
+ * One-shot copy of every record from one store into another.
+ * The source is read a page at a time, each page a separate task on its I/O lane, and
+ * the page is written to the target and the copy throttled on the migrating thread.
+ * Live saves and loads on the source therefore only ever wait for one page to be read,
+ * and the migration itself holds only one page in memory. Writes are throttled to a
+ * maximum rate so a migration on a live server does not starve normal saves of disk
+ * bandwidth.
+ */
+public class PlayerDataMigration {
+    private static final long PROGRESS_INTERVAL_MILLIS = 5000;
+    
+    private final PlayerDataStore source;
+    private final PlayerDataStore target;
+    private final ShadowPlayerDataStore shadow;
+    private final int batchSize;
+    private final int recordsPerSecond;
+    private final ProgressListener listener;
+    private volatile boolean cancelled;
+    
+    /**
+     * Copy into a store that is not receiving live writes
+     * @param recordsPerSecond Maximum copy rate, or 0 for no limit
+     */
+    public PlayerDataMigration(PlayerDataStore source, PlayerDataStore target, int batchSize, int recordsPerSecond, ProgressListener listener) {
+        this(source, target, null, batchSize, recordsPerSecond, listener);
+    }
+    
+    /**
+     * Copy into the shadow of a dual-writing store. Players changed since shadow mode
+     * started are skipped, since the shadow already has their latest value.
+     */
+    public PlayerDataMigration(ShadowPlayerDataStore shadow, int batchSize, int recordsPerSecond, ProgressListener listener) {
+        this(shadow.getPrimary(), shadow.getShadow(), shadow, batchSize, recordsPerSecond, listener);
+    }
+    
+    private PlayerDataMigration(PlayerDataStore source, PlayerDataStore target, ShadowPlayerDataStore shadow,
+                                int batchSize, int recordsPerSecond, ProgressListener listener) {
+        this.source = source;
+        this.target = target;
+        this.shadow = shadow;
+        this.batchSize = Math.max(1, batchSize);
+        this.recordsPerSecond = Math.max(0, recordsPerSecond);
+        this.listener = listener;
+    }
+    
+    public PlayerDataStore getTarget() {
+        return target;
+    }
+    
+    /**
+     * Stop after the batch in flight
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+    
+    /**
+     * Run the migration on the calling thread. Blocks until done, so never call this from the main thread.
+     */
+    public void run() {
+        long start = System.currentTimeMillis();
+        try {
+            int total = source.count().join();
+            listener.onStart(total);
+            
+            int read = 0;
+            int written = 0;
+            long lastProgress = start;
+            UUID after = null;
+            RecordPage page;
+            do {
+                page = source.readPage(after, batchSize).join();
+                after = page.getLast();
+                read += page.getRecords().size();
+                written += writeBatch(page.getRecords());
+                
+                throttle(start, read);
+                if (cancelled) {
+                    listener.onCancelled(read, total);
+                    return;
+                }
+                
+                long now = System.currentTimeMillis();
+                if (now - lastProgress >= PROGRESS_INTERVAL_MILLIS) {
+                    lastProgress = now;
+                    listener.onProgress(read, total, now - start);
+                }
+            } while (!page.isEnd());
+            
+            listener.onComplete(total, written, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            Throwable cause = e;
+            while (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            listener.onFailed(cause);
+        }
+    }
+    
+    private int writeBatch(Map<UUID, String> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        if (shadow != null) {
+            return shadow.copyToShadow(batch).join();
+        }
+        target.saveAll(batch).join();
+        return batch.size();
+    }
+    
+    /**
+     * Sleep until the copy is back under recordsPerSecond. An interrupt cancels the migration.
+     */
+    private void throttle(long start, int read) {
+        if (recordsPerSecond == 0) {
+            return;
+        }
+        
+        long expectedMillis = read * 1000L / recordsPerSecond;
+        long aheadMillis = expectedMillis - (System.currentTimeMillis() - start);
+        if (aheadMillis > 0) {
+            try {
+                Thread.sleep(aheadMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelled = true;
+            }
+        }
+    }
+    
+    /**
+     * Receives migration progress. Called from the migrating thread.
+     * Also used for {@link PlayerDataReencryption}, where copied means re-encrypted.
+     */
+    public interface ProgressListener {
+        void onStart(int total);
+        
+        void onProgress(int copied, int total, long elapsedMillis);
+        
+        /**
+         * @param written Records written to the target, excluding players skipped because they were dual-written.
+         *                For a re-encryption, the records that were still under an older key.
+         */
+        void onComplete(int total, int written, long elapsedMillis);
+        
+        void onCancelled(int copied, int total);
+        
+        void onFailed(Throwable error);
+    }
+}
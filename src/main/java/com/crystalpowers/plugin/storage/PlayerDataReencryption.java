@@ -0,0 +1,110 @@
+package com.crystalpowers.plugin.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Background re-encryption of every record after the encryption key was rotated.
+ * Players are re-encrypted in batches, each waiting for the previous one, at a throttled
+ * rate so the job does not compete with normal saves. Once every record is done the store
+ * is compacted, after which nothing is left under an older key and old keys can be retired.
+ * Reads keep working with both keys the whole time.
+ */
+public class PlayerDataReencryption {
+    private static final long PROGRESS_INTERVAL_MILLIS = 5000;
+    
+    private final PlayerDataStore store;
+    private final int batchSize;
+    private final int recordsPerSecond;
+    private final PlayerDataMigration.ProgressListener listener;
+    private volatile int processed;
+    private volatile int total;
+    private volatile boolean cancelled;
+    
+    /**
+     * @param recordsPerSecond Maximum rate, or 0 for no limit
+     * @param listener Receives progress; onComplete reports how many records were rewritten
+     */
+    public PlayerDataReencryption(PlayerDataStore store, int batchSize, int recordsPerSecond, PlayerDataMigration.ProgressListener listener) {
+        this.store = store;
+        this.batchSize = Math.max(1, batchSize);
+        this.recordsPerSecond = Math.max(0, recordsPerSecond);
+        this.listener = listener;
+    }
+    
+    /**
+     * Records processed so far
+     */
+    public int getProcessed() {
+        return processed;
+    }
+    
+    /**
+     * Records to process, or 0 until the store has been scanned
+     */
+    public int getTotal() {
+        return total;
+    }
+    
+    /**
+     * Stop after the batch in flight. Old keys are still needed afterwards.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+    
+    /**
+     * Run the job on the calling thread. Blocks until done, so never call this from the main thread.
+     */
+    public void run() {
+        long start = System.currentTimeMillis();
+        try {
+            List<UUID> playerIds = new ArrayList<>();
+            store.forEach((uuid, crystalPowerId) -> playerIds.add(uuid)).join();
+            total = playerIds.size();
+            listener.onStart(total);
+            
+            int rewritten = 0;
+            long lastProgress = start;
+            for (int from = 0; from < playerIds.size(); from += batchSize) {
+                List<UUID> batch = playerIds.subList(from, Math.min(from + batchSize, playerIds.size()));
+                rewritten += store.reencrypt(new ArrayList<>(batch)).join();
+                processed = from + batch.size();
+                
+                if (cancelled) {
+                    listener.onCancelled(processed, total);
+                    return;
+                }
+                
+                throttle(start, processed);
+                long now = System.currentTimeMillis();
+                if (now - lastProgress >= PROGRESS_INTERVAL_MILLIS) {
+                    lastProgress = now;
+                    listener.onProgress(processed, total, now - start);
+                }
+            }
+            
+            store.compact().join();
+            listener.onComplete(total, rewritten, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            listener.onFailed(cause);
+        }
+    }
+    
+    /**
+     * Sleep until the job is back under recordsPerSecond
+     */
+    private void throttle(long start, int done) throws InterruptedException {
+        if (recordsPerSecond == 0) {
+            return;
+        }
+        
+        long expectedMillis = done * 1000L / recordsPerSecond;
+        long aheadMillis = expectedMillis - (System.currentTimeMillis() - start);
+        if (aheadMillis > 0) {
+            Thread.sleep(aheadMillis);
+        }
+    }
+}
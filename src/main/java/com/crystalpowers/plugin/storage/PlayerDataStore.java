@@ -0,0 +1,108 @@
+package com.crystalpowers.plugin.storage;
+
+import com.crystalpowers.plugin.models.PlayerData;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Backend that persists players' crystal powers.
+ * Every operation is asynchronous. Writes are applied in the order they were submitted,
+ * and a load issued after a write has completed sees that write.
+ * Implementations are selected with storage.mode, see {@link PlayerDataStoreFactory}.
+ */
+public interface PlayerDataStore {
+    
+    /**
+     * Name of the file or database backing this store, for log messages
+     */
+    String getName();
+    
+    /**
+     * Whether the backing file already exists, i.e. this is not the first start with this backend
+     */
+    boolean exists();
+    
+    /**
+     * Whether crystal powers are encrypted at rest when encryption is enabled
+     */
+    boolean isEncrypted();
+    
+    /**
+     * Open the store, creating an empty one if needed. Must complete before any other call.
+     */
+    CompletableFuture<Void> open();
+    
+    /**
+     * Load a single player's record
+     * @return The player's data, or null if the store has no record of them
+     */
+    CompletableFuture<PlayerData> load(UUID playerId);
+    
+    /**
+     * Persist a single player's crystal power
+     * @param crystalPowerId The crystal power ID, or null if the power was cleared
+     */
+    default CompletableFuture<Void> save(UUID playerId, String crystalPowerId) {
+        return saveAll(Collections.singletonMap(playerId, crystalPowerId));
+    }
+    
+    /**
+     * Persist a batch of changes
+     * @param records Crystal power IDs keyed by player, null meaning the power was cleared
+     */
+    CompletableFuture<Void> saveAll(Map<UUID, String> records);
+    
+    /**
+     * Find every stored player with the given crystal power
+     */
+    CompletableFuture<List<UUID>> findPlayersWithPower(String crystalPowerId);
+    
+    /**
+     * Visit every stored record. The consumer is called from the store's I/O thread.
+     */
+    CompletableFuture<Void> forEach(BiConsumer<UUID, String> consumer);
+    
+    /**
+     * Read the records that follow the given player, in an order of the store's choosing
+     * that stays the same between calls. Each page is a task of its own on the store's I/O
+     * lane, so a long copy lets other work run between pages, unlike {@link #forEach}.
+     * Players added or changed while paging may or may not be included.
+     * @param after The last player of the previous page, or null to start at the beginning
+     * @param limit Maximum number of records to read
+     */
+    CompletableFuture<RecordPage> readPage(UUID after, int limit);
+    
+    /**
+     * Number of stored records
+     */
+    CompletableFuture<Integer> count();
+    
+    /**
+     * Re-encrypt the given players' records with the current encryption key if they were
+     * encrypted with an older one. Stores that keep crystal powers unencrypted have nothing to do.
+     * @return Number of records that were rewritten
+     */
+    default CompletableFuture<Integer> reencrypt(Collection<UUID> playerIds) {
+        return CompletableFuture.completedFuture(0);
+    }
+    
+    /**
+     * Rewrite everything {@link #reencrypt} does not reach record by record, such as a file
+     * encrypted as a whole or old journal entries, so nothing is left under an older key
+     */
+    default CompletableFuture<Void> compact() {
+        return CompletableFuture.completedFuture(null);
+    }
+    
+    /**
+     * Close the store once queued operations have run, waiting at most the given time
+     */
+    void close(long timeout, TimeUnit unit);
+}
@@ -0,0 +1,192 @@
+package com.crystalpowers.plugin.storage;
+
+import com.crystalpowers.plugin.models.PlayerData;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Diagnostics behind /crystalstorage verify. Exercises a backend on the live server -
+ * saving, loading, queries and a close and reopen - against fresh, empty stores in a
+ * scratch folder and reports every problem found. Run it before switching a server to
+ * a new backend; it checks the server's own environment. The backend contract itself is
+ * enforced at build time by PlayerDataStoreConformanceTest.
+ */
+public class PlayerDataStoreDiagnostics {
+    private static final long TIMEOUT_SECONDS = 30;
+    private static final int BATCH_SIZE = 200;
+    private static final String[] POWERS = {"human", "avian", "enderian", "arachnid", "merling", "phantom"};
+    
+    private final Supplier<PlayerDataStore> storeFactory;
+    private final List<String> failures;
+    
+    /**
+     * @param storeFactory Creates a store over the same empty location on every call,
+     *                     so that persistence across a close and reopen can be checked
+     */
+    public PlayerDataStoreDiagnostics(Supplier<PlayerDataStore> storeFactory) {
+        this.storeFactory = storeFactory;
+        this.failures = new ArrayList<>();
+    }
+    
+    /**
+     * Run every check. Blocks until done, so never call this from the main thread.
+     * @return Description of each failed check, empty if the store behaves as expected
+     */
+    public List<String> run() {
+        failures.clear();
+        Map<UUID, String> expected = new HashMap<>();
+        
+        PlayerDataStore store = storeFactory.get();
+        try {
+            await("open", store.open());
+            check(store.exists(), "exists() is false after open()");
+            checkUnknownPlayer(store);
+            checkSingleSave(store, expected);
+            checkBatchSave(store, expected);
+            checkQueries(store, expected);
+        } catch (CheckFailedException e) {
+            failures.add(e.getMessage());
+        } finally {
+            store.close(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+        
+        if (failures.isEmpty()) {
+            checkReopen(expected);
+        }
+        return failures;
+    }
+    
+    private void checkUnknownPlayer(PlayerDataStore store) {
+        PlayerData data = await("load unknown player", store.load(UUID.randomUUID()));
+        check(data == null, "load() of an unknown player returned data instead of null");
+    }
+    
+    private void checkSingleSave(PlayerDataStore store, Map<UUID, String> expected) {
+        UUID playerId = UUID.randomUUID();
+        await("save", store.save(playerId, "avian"));
+        checkRecord(store, playerId, "avian", "after save()");
+        
+        await("overwrite", store.save(playerId, "merling"));
+        checkRecord(store, playerId, "merling", "after overwriting with save()");
+        
+        await("clear", store.save(playerId, null));
+        checkRecord(store, playerId, null, "after clearing with save()");
+        expected.put(playerId, null);
+    }
+    
+    private void checkBatchSave(PlayerDataStore store, Map<UUID, String> expected) {
+        Map<UUID, String> batch = new HashMap<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.put(UUID.randomUUID(), i % 10 == 0 ? null : POWERS[i % POWERS.length]);
+        }
+        await("saveAll", store.saveAll(batch));
+        expected.putAll(batch);
+        
+        // Change part of the batch, including clearing a power and selecting one again
+        Map<UUID, String> changes = new HashMap<>();
+        int index = 0;
+        for (UUID playerId : batch.keySet()) {
+            if (index % 7 == 0) {
+                changes.put(playerId, expected.get(playerId) == null ? "phantom" : null);
+            }
+            index++;
+        }
+        await("saveAll changes", store.saveAll(changes));
+        expected.putAll(changes);
+        
+        // Writes are applied in submission order, even without waiting in between
+        UUID playerId = UUID.randomUUID();
+        store.save(playerId, "human");
+        store.save(playerId, "enderian");
+        await("ordered save", store.save(playerId, "arachnid"));
+        expected.put(playerId, "arachnid");
+        
+        for (Map.Entry<UUID, String> entry : expected.entrySet()) {
+            checkRecord(store, entry.getKey(), entry.getValue(), "after saveAll()");
+        }
+    }
+    
+    private void checkQueries(PlayerDataStore store, Map<UUID, String> expected) {
+        for (String crystalPowerId : POWERS) {
+            Set<UUID> expectedIds = new HashSet<>();
+            expected.forEach((uuid, storedPowerId) -> {
+                if (crystalPowerId.equals(storedPowerId)) {
+                    expectedIds.add(uuid);
+                }
+            });
+            
+            List<UUID> found = await("findPlayersWithPower", store.findPlayersWithPower(crystalPowerId));
+            check(found.size() == expectedIds.size() && expectedIds.equals(new HashSet<>(found)),
+                "findPlayersWithPower(" + crystalPowerId + ") returned " + found.size() + " players, expected " + expectedIds.size());
+        }
+        
+        Map<UUID, String> visited = new HashMap<>();
+        await("forEach", store.forEach(visited::put));
+        check(visited.equals(expected), "forEach() visited " + visited.size() + " records, expected " + expected.size() + " matching records");
+    }
+    
+    private void checkReopen(Map<UUID, String> expected) {
+        PlayerDataStore store = storeFactory.get();
+        try {
+            check(store.exists(), "exists() is false for a store that was written and closed");
+            await("reopen", store.open());
+            for (Map.Entry<UUID, String> entry : expected.entrySet()) {
+                checkRecord(store, entry.getKey(), entry.getValue(), "after reopening");
+            }
+        } catch (CheckFailedException e) {
+            failures.add(e.getMessage());
+        } finally {
+            store.close(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+    
+    private void checkRecord(PlayerDataStore store, UUID playerId, String crystalPowerId, String when) {
+        PlayerData data = await("load", store.load(playerId));
+        if (data == null) {
+            throw new CheckFailedException("load() returned null for a stored player " + when);
+        }
+        check(playerId.equals(data.getPlayerId()), "load() returned data for the wrong player " + when);
+        check(Objects.equals(crystalPowerId, data.getCrystalPowerId()),
+            "load() returned " + data.getCrystalPowerId() + " instead of " + crystalPowerId + " " + when);
+        check((crystalPowerId != null) == data.hasSelectedCrystalPower(),
+            "hasSelectedCrystalPower() is " + data.hasSelectedCrystalPower() + " for " + crystalPowerId + " " + when);
+        check(!data.isDirty(), "load() returned dirty data " + when);
+    }
+    
+    private void check(boolean condition, String failure) {
+        if (!condition && !failures.contains(failure)) {
+            failures.add(failure);
+        }
+    }
+    
+    private <T> T await(String operation, CompletableFuture<T> future) {
+        try {
+            return future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CheckFailedException(operation + " was interrupted");
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new CheckFailedException(operation + " failed: " + cause);
+        }
+    }
+    
+    /**
+     * Aborts the remaining checks when an operation fails outright
+     */
+    private static class CheckFailedException extends RuntimeException {
+        private CheckFailedException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.crystalpowers.plugin.storage;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Creates the player data store selected with storage.mode
+ */
+public final class PlayerDataStoreFactory {
+    public static final List<String> MODES = Arrays.asList("yaml", "journal", "binary", "sql");
+    
+    private PlayerDataStoreFactory() {
+    }
+    
+    /**
+     * Create the store configured in the storage section of config.yml. It dual-writes to
+     * storage.shadow.mode when set, and is wrapped for group commit unless
+     * storage.group_commit_window_ms is 0.
+     * @param storageConfig The storage section, or null to use the defaults
+     * @param executor Executor the stores run their I/O on, or null to give each store a thread of its own
+     */
+    public static PlayerDataStore create(ConfigurationSection storageConfig, File dataFolder, StorageExecutor executor, Logger logger) {
+        String mode = storageConfig != null ? storageConfig.getString("mode", "yaml") : "yaml";
+        long journalCompactThreshold = (storageConfig != null ? storageConfig.getLong("journal_compact_threshold_kb", 512) : 512) * 1024L;
+        
+        if (!MODES.contains(mode.toLowerCase())) {
+            logger.warning("Unknown storage mode '" + mode + "', falling back to yaml");
+            mode = "yaml";
+        }
+        PlayerDataStore store = create(mode, dataFolder, journalCompactThreshold, executor, logger);
+        
+        String shadowMode = storageConfig != null ? storageConfig.getString("shadow.mode", "") : "";
+        if (!shadowMode.isEmpty()) {
+            if (!MODES.contains(shadowMode.toLowerCase())) {
+                logger.warning("Unknown shadow storage mode '" + shadowMode + "', shadow mode is disabled");
+            } else if (sharesFile(mode, shadowMode)) {
+                logger.warning("Shadow storage mode '" + shadowMode + "' uses the same file as '" + mode + "', shadow mode is disabled");
+            } else {
+                double sampleRate = storageConfig.getDouble("shadow.sample_rate", 0.1);
+                PlayerDataStore shadow = create(shadowMode, dataFolder, journalCompactThreshold, executor, logger);
+                store = new ShadowPlayerDataStore(store, shadow, sampleRate, logger);
+                logger.info("Shadow mode enabled - dual-writing player data to " + shadow.getName());
+            }
+        }
+        
+        long groupCommitWindow = storageConfig != null ? storageConfig.getLong("group_commit_window_ms", 250) : 250;
+        return groupCommitWindow > 0 ? new GroupCommitPlayerDataStore(store, groupCommitWindow) : store;
+    }
+    
+    /**
+     * Whether two modes keep their data in the same file (yaml and journal both use playerdata.yml)
+     */
+    public static boolean sharesFile(String mode, String otherMode) {
+        return fileGroup(mode).equals(fileGroup(otherMode));
+    }
+    
+    private static String fileGroup(String mode) {
+        String normalized = mode.toLowerCase();
+        return normalized.equals("journal") ? "yaml" : normalized;
+    }
+    
+    /**
+     * Create a store for one of {@link #MODES}
+     * @param journalCompactThreshold Journal size in bytes that triggers compaction (journal mode only)
+     * @param executor Executor the store runs its I/O on, or null to give it a thread of its own
+     */
+    public static PlayerDataStore create(String mode, File dataFolder, long journalCompactThreshold, StorageExecutor executor, Logger logger) {
+        switch (mode.toLowerCase()) {
+            case "journal":
+                return new YamlPlayerDataStore(new File(dataFolder, "playerdata.yml"),
+                    new PlayerDataJournal(new File(dataFolder, "playerdata.journal"), logger), journalCompactThreshold, executor, logger);
+            case "binary":
+                return new BinaryPlayerDataStore(new File(dataFolder, "playerdata.bin"), executor, logger);
+            case "sql":
+                return new SqlPlayerDataStore(new File(dataFolder, "playerdata.db"), executor, logger);
+            case "yaml":
+                return new YamlPlayerDataStore(new File(dataFolder, "playerdata.yml"), executor, logger);
+            default:
+                throw new IllegalArgumentException("Unknown storage mode: " + mode);
+        }
+    }
+}
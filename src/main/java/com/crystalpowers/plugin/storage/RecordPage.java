@@ -0,0 +1,42 @@
+package com.crystalpowers.plugin.storage;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * One page of records read with {@link PlayerDataStore#readPage}
+ */
+public class RecordPage {
+    private final Map<UUID, String> records;
+    private final UUID last;
+    private final boolean end;
+    
+    /**
+     * @param last The last player read, including one whose record could not be decoded
+     * @param end Whether no records follow this page
+     */
+    public RecordPage(Map<UUID, String> records, UUID last, boolean end) {
+        this.records = records;
+        this.last = last;
+        this.end = end;
+    }
+    
+    /**
+     * Crystal power IDs keyed by player, null meaning no crystal power. Records that
+     * could not be decoded are left out, so a page may hold fewer records than asked for.
+     */
+    public Map<UUID, String> getRecords() {
+        return records;
+    }
+    
+    /**
+     * Pass to readPage to continue after this page
+     */
+    public UUID getLast() {
+        return last;
+    }
+    
+    public boolean isEnd() {
+        return end;
+    }
+}
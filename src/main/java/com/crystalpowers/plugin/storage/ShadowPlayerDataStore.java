@@ -0,0 +1,241 @@
+package com.crystalpowers.plugin.storage;
+
+import com.crystalpowers.plugin.models.PlayerData;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+
+/**
+ * Dual-writes every change to a primary and a shadow store while a move between backends
+ * is in progress. The primary stays authoritative: reads are served from it and a failed
+ * shadow write never fails the caller. A sample of reads is repeated against the shadow
+ * and compared, and latency and mismatch statistics are kept for both stores.
+ */
+public class ShadowPlayerDataStore implements PlayerDataStore {
+    private static final int MAX_LOGGED_MISMATCHES = 20;
+    
+    private final PlayerDataStore primary;
+    private final PlayerDataStore shadow;
+    private final double sampleRate;
+    private final Logger logger;
+    private final Object writeLock;
+    private final Set<UUID> writtenPlayers;
+    private final LatencyStats primaryReads;
+    private final LatencyStats shadowReads;
+    private final LatencyStats primaryWrites;
+    private final LatencyStats shadowWrites;
+    private final LongAdder sampledReads;
+    private final LongAdder mismatches;
+    private final LongAdder shadowFailures;
+    
+    /**
+     * @param sampleRate Fraction of reads, between 0 and 1, that are also made against the shadow
+     */
+    public ShadowPlayerDataStore(PlayerDataStore primary, PlayerDataStore shadow, double sampleRate, Logger logger) {
+        this.primary = primary;
+        this.shadow = shadow;
+        this.sampleRate = Math.max(0, Math.min(1, sampleRate));
+        this.logger = logger;
+        this.writeLock = new Object();
+        this.writtenPlayers = ConcurrentHashMap.newKeySet();
+        this.primaryReads = new LatencyStats();
+        this.shadowReads = new LatencyStats();
+        this.primaryWrites = new LatencyStats();
+        this.shadowWrites = new LatencyStats();
+        this.sampledReads = new LongAdder();
+        this.mismatches = new LongAdder();
+        this.shadowFailures = new LongAdder();
+    }
+    
+    public PlayerDataStore getPrimary() {
+        return primary;
+    }
+    
+    public PlayerDataStore getShadow() {
+        return shadow;
+    }
+    
+    @Override
+    public String getName() {
+        return primary.getName();
+    }
+    
+    @Override
+    public boolean exists() {
+        return primary.exists();
+    }
+    
+    @Override
+    public boolean isEncrypted() {
+        return primary.isEncrypted() && shadow.isEncrypted();
+    }
+    
+    @Override
+    public CompletableFuture<Void> open() {
+        CompletableFuture<Void> shadowOpen = shadow.open().exceptionally(error -> {
+            logger.severe("Could not open shadow store " + shadow.getName() + ": " + error.getMessage());
+            shadowFailures.increment();
+            return null;
+        });
+        return CompletableFuture.allOf(primary.open(), shadowOpen);
+    }
+    
+    @Override
+    public CompletableFuture<PlayerData> load(UUID playerId) {
+        long start = System.nanoTime();
+        CompletableFuture<PlayerData> result = primary.load(playerId);
+        result.whenComplete((data, error) -> primaryReads.record(start));
+        
+        if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            long shadowStart = System.nanoTime();
+            shadow.load(playerId).whenComplete((shadowData, shadowError) -> {
+                shadowReads.record(shadowStart);
+                if (shadowError != null) {
+                    shadowFailures.increment();
+                    return;
+                }
+                result.thenAccept(data -> compare(playerId, data, shadowData));
+            });
+        }
+        return result;
+    }
+    
+    /**
+     * Write to both stores. Completes with the primary write; shadow failures are only counted.
+     */
+    @Override
+    public CompletableFuture<Void> saveAll(Map<UUID, String> records) {
+        long start = System.nanoTime();
+        CompletableFuture<Void> result;
+        synchronized (writeLock) {
+            writtenPlayers.addAll(records.keySet());
+            result = primary.saveAll(records);
+            shadow.saveAll(records).whenComplete((ignored, error) -> {
+                shadowWrites.record(start);
+                if (error != null) {
+                    shadowFailures.increment();
+                    logger.warning("Shadow write to " + shadow.getName() + " failed: " + error.getMessage());
+                }
+            });
+        }
+        result.whenComplete((ignored, error) -> primaryWrites.record(start));
+        return result;
+    }
+    
+    /**
+     * Copy records into the shadow store for a migration, skipping players that were
+     * dual-written since shadow mode started - the shadow already has their newer value.
+     * @return The number of records actually written
+     */
+    public CompletableFuture<Integer> copyToShadow(Map<UUID, String> records) {
+        Map<UUID, String> untouched = new LinkedHashMap<>();
+        synchronized (writeLock) {
+            // Holding writeLock orders this write against live writes to the shadow
+            for (Map.Entry<UUID, String> entry : records.entrySet()) {
+                if (!writtenPlayers.contains(entry.getKey())) {
+                    untouched.put(entry.getKey(), entry.getValue());
+                }
+            }
+            return shadow.saveAll(untouched).thenApply(ignored -> untouched.size());
+        }
+    }
+    
+    @Override
+    public CompletableFuture<List<UUID>> findPlayersWithPower(String crystalPowerId) {
+        return primary.findPlayersWithPower(crystalPowerId);
+    }
+    
+    @Override
+    public CompletableFuture<Void> forEach(BiConsumer<UUID, String> consumer) {
+        return primary.forEach(consumer);
+    }
+    
+    @Override
+    public CompletableFuture<RecordPage> readPage(UUID after, int limit) {
+        return primary.readPage(after, limit);
+    }
+    
+    @Override
+    public CompletableFuture<Integer> count() {
+        return primary.count();
+    }
+    
+    /**
+     * Re-encrypt in both stores. Completes with the primary's count once both are done, and
+     * fails if either store fails - old keys must stay until the shadow is re-encrypted too.
+     */
+    @Override
+    public CompletableFuture<Integer> reencrypt(Collection<UUID> playerIds) {
+        CompletableFuture<Integer> shadowReencrypt = shadow.reencrypt(playerIds).whenComplete((count, error) -> {
+            if (error != null) {
+                logger.warning("Could not re-encrypt shadow store " + shadow.getName() + ": " + error.getMessage());
+                shadowFailures.increment();
+            }
+        });
+        return primary.reencrypt(playerIds).thenCombine(shadowReencrypt, (primaryCount, shadowCount) -> primaryCount);
+    }
+    
+    /**
+     * Compact both stores. Fails if either store fails.
+     */
+    @Override
+    public CompletableFuture<Void> compact() {
+        CompletableFuture<Void> shadowCompact = shadow.compact().whenComplete((result, error) -> {
+            if (error != null) {
+                logger.warning("Could not compact shadow store " + shadow.getName() + ": " + error.getMessage());
+                shadowFailures.increment();
+            }
+        });
+        return CompletableFuture.allOf(primary.compact(), shadowCompact);
+    }
+    
+    @Override
+    public void close(long timeout, TimeUnit unit) {
+        primary.close(timeout, unit);
+        shadow.close(timeout, unit);
+        logger.info("Shadow store summary: " + String.join(", ", getReport()));
+    }
+    
+    /**
+     * Latency and mismatch statistics, one line per figure
+     */
+    public List<String> getReport() {
+        return List.of(
+            "sampled reads " + sampledReads.sum() + " (" + Math.round(sampleRate * 100) + "%), mismatches " + mismatches.sum(),
+            "reads: primary " + primaryReads + ", shadow " + shadowReads,
+            "writes: primary " + primaryWrites + ", shadow " + shadowWrites,
+            "shadow failures " + shadowFailures.sum()
+        );
+    }
+    
+    public long getMismatchCount() {
+        return mismatches.sum();
+    }
+    
+    private void compare(UUID playerId, PlayerData primaryData, PlayerData shadowData) {
+        sampledReads.increment();
+        String expected = primaryData != null ? primaryData.getCrystalPowerId() : null;
+        String actual = shadowData != null ? shadowData.getCrystalPowerId() : null;
+        if (Objects.equals(expected, actual)) {
+            return;
+        }
+        
+        mismatches.increment();
+        if (mismatches.sum() <= MAX_LOGGED_MISMATCHES) {
+            logger.warning("Shadow mismatch for " + playerId + ": " + primary.getName() + " has " + expected +
+                          ", " + shadow.getName() + " has " + actual);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.crystalpowers.plugin.storage;
+
+import com.crystalpowers.plugin.models.PlayerData;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+
+/**
+ * Player data stored in an embedded SQLite database (the driver ships with Spigot).
+ * All statements run one at a time on the store's I/O lane, which owns the connection.
+ */
+public class SqlPlayerDataStore extends AbstractPlayerDataStore {
+    private static final String CREATE_TABLE =
+        "CREATE TABLE IF NOT EXISTS player_powers (" +
+        "uuid CHAR(36) NOT NULL PRIMARY KEY, " +
+        "crystal_power VARCHAR(64))";
+    private static final String CREATE_POWER_INDEX =
+        "CREATE INDEX IF NOT EXISTS idx_player_powers_crystal_power ON player_powers (crystal_power)";
+    private static final String SELECT_PLAYER =
+        "SELECT crystal_power FROM player_powers WHERE uuid = ?";
+    private static final String SELECT_BY_POWER =
+        "SELECT uuid FROM player_powers WHERE crystal_power = ?";
+    private static final String SELECT_ALL =
+        "SELECT uuid, crystal_power FROM player_powers";
+    private static final String SELECT_PAGE =
+        "SELECT uuid, crystal_power FROM player_powers WHERE uuid > ? ORDER BY uuid LIMIT ?";
+    private static final String COUNT_ALL =
+        "SELECT COUNT(*) FROM player_powers";
+    private static final String UPSERT_PLAYER =
+        "INSERT INTO player_powers (uuid, crystal_power) VALUES (?, ?) " +
+        "ON CONFLICT(uuid) DO UPDATE SET crystal_power = excluded.crystal_power";
+    
+    private final File databaseFile;
+    private Connection connection;
+    
+    /**
+     * @param executor Executor shared with other stores, or null to give this store a thread of its own
+     */
+    public SqlPlayerDataStore(File databaseFile, StorageExecutor executor, Logger logger) {
+        super("CrystalPowers-SQL", executor, logger);
+        this.databaseFile = databaseFile;
+    }
+    
+    @Override
+    public String getName() {
+        return databaseFile.getName();
+    }
+    
+    @Override
+    public boolean exists() {
+        return databaseFile.exists();
+    }
+    
+    @Override
+    public boolean isEncrypted() {
+        // Stored unencrypted so the crystal_power column can be indexed
+        return false;
+    }
+    
+    @Override
+    protected void openStore() throws Exception {
+        Class.forName("org.sqlite.JDBC");
+        databaseFile.getParentFile().mkdirs();
+        connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+        
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA journal_mode=WAL");
+            statement.execute(CREATE_TABLE);
+            statement.execute(CREATE_POWER_INDEX);
+        }
+        connection.setAutoCommit(false);
+        connection.commit();
+    }
+    
+    @Override
+    public CompletableFuture<PlayerData> load(UUID playerId) {
+        return submit(() -> {
+            try (PreparedStatement statement = connection().prepareStatement(SELECT_PLAYER)) {
+                statement.setString(1, playerId.toString());
+                try (ResultSet result = statement.executeQuery()) {
+                    if (!result.next()) {
+                        return null;
+                    }
+                    
+                    PlayerData data = new PlayerData(playerId);
+                    String crystalPowerId = result.getString(1);
+                    if (crystalPowerId != null) {
+                        data.setCrystalPowerId(crystalPowerId);
+                        data.markClean();
+                    }
+                    return data;
+                }
+            }
+        });
+    }
+    
+    /**
+     * Find every player with the given crystal power using the crystal_power index
+     */
+    @Override
+    public CompletableFuture<List<UUID>> findPlayersWithPower(String crystalPowerId) {
+        return submit(() -> {
+            List<UUID> playerIds = new ArrayList<>();
+            try (PreparedStatement statement = connection().prepareStatement(SELECT_BY_POWER)) {
+                statement.setString(1, crystalPowerId);
+                try (ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        playerIds.add(UUID.fromString(result.getString(1)));
+                    }
+                }
+            }
+            return playerIds;
+        });
+    }
+    
+    /**
+     * Write a batch of changes as one batched upsert in a single transaction
+     */
+    @Override
+    protected void writeRecords(Map<UUID, String> records) throws SQLException {
+        try (PreparedStatement statement = connection().prepareStatement(UPSERT_PLAYER)) {
+            for (Map.Entry<UUID, String> entry : records.entrySet()) {
+                statement.setString(1, entry.getKey().toString());
+                statement.setString(2, entry.getValue());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            connection().commit();
+        } catch (SQLException e) {
+            connection().rollback();
+            throw e;
+        }
+    }
+    
+    @Override
+    protected void visitRecords(BiConsumer<UUID, String> consumer) throws SQLException {
+        try (Statement statement = connection().createStatement();
+             ResultSet result = statement.executeQuery(SELECT_ALL)) {
+            while (result.next()) {
+                consumer.accept(UUID.fromString(result.getString(1)), result.getString(2));
+            }
+        }
+    }
+    
+    /**
+     * Read the records that follow the given player in uuid column order, using the primary key
+     */
+    @Override
+    protected RecordPage readRecords(UUID after, int limit) throws SQLException {
+        Map<UUID, String> records = new LinkedHashMap<>();
+        UUID last = after;
+        try (PreparedStatement statement = connection().prepareStatement(SELECT_PAGE)) {
+            statement.setString(1, after != null ? after.toString() : "");
+            statement.setInt(2, limit);
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    last = UUID.fromString(result.getString(1));
+                    records.put(last, result.getString(2));
+                }
+            }
+        }
+        return new RecordPage(records, last, records.size() < limit);
+    }
+    
+    @Override
+    protected int countRecords() throws SQLException {
+        try (Statement statement = connection().createStatement();
+             ResultSet result = statement.executeQuery(COUNT_ALL)) {
+            return result.next() ? result.getInt(1) : 0;
+        }
+    }
+    
+    @Override
+    protected void closeStore() throws SQLException {
+        if (connection != null) {
+            connection.close();
+            connection = null;
+        }
+    }
+    
+    private Connection connection() throws SQLException {
+        if (connection == null) {
+            throw new SQLException("Player data database is not open");
+        }
+        return connection;
+    }
+}
@@ -0,0 +1,241 @@
+package com.crystalpowers.plugin.storage;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+
+/**
+ * Bounded thread pool for all storage work - encryption, file writes and database calls.
+ * Each store runs on its own {@link Lane}, which runs its tasks one at a time in submission
+ * order, so every store keeps its ordering guarantee while sharing the pool's threads.
+ *
+ * At most queueLimit tasks wait at a time. When the queue is full, callers that may block
+ * wait up to blockTimeout for room; all others - the main thread - are rejected straight away
+ * with {@link RejectedExecutionException}, so a slow disk never stalls a server tick.
+ */
+public class StorageExecutor {
+    private final ExecutorService pool;
+    private final int queueLimit;
+    private final Semaphore capacity;
+    private final long blockTimeoutMillis;
+    private final BooleanSupplier mayBlock;
+    private final Logger logger;
+    private final AtomicInteger queued;
+    private final Object idleLock;
+    private final LongAdder rejected;
+    private final LatencyStats waitTimes;
+    private final LatencyStats runTimes;
+    private volatile boolean shutdown;
+    
+    /**
+     * @param queueLimit Maximum number of waiting tasks, or 0 for no limit
+     * @param mayBlock Whether the calling thread may wait for room in a full queue
+     */
+    public StorageExecutor(String threadName, int threads, int queueLimit, long blockTimeoutMillis, BooleanSupplier mayBlock, Logger logger) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, threads > 1 ? threadName + "-" + threadCount.incrementAndGet() : threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.queueLimit = Math.max(0, queueLimit);
+        this.capacity = queueLimit > 0 ? new Semaphore(queueLimit) : null;
+        this.blockTimeoutMillis = Math.max(0, blockTimeoutMillis);
+        this.mayBlock = mayBlock;
+        this.logger = logger;
+        this.queued = new AtomicInteger();
+        this.idleLock = new Object();
+        this.rejected = new LongAdder();
+        this.waitTimes = new LatencyStats();
+        this.runTimes = new LatencyStats();
+    }
+    
+    /**
+     * A new serial lane on this pool, for one store
+     */
+    public Lane newLane() {
+        return new Lane();
+    }
+    
+    /**
+     * Number of tasks queued or running
+     */
+    public int getQueueLength() {
+        return queued.get();
+    }
+    
+    /**
+     * Maximum number of waiting tasks, or 0 for no limit
+     */
+    public int getQueueLimit() {
+        return queueLimit;
+    }
+    
+    /**
+     * Number of tasks turned away because the queue was full
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+    
+    /**
+     * Queue and latency statistics, one line per figure
+     */
+    public List<String> getReport() {
+        return List.of(
+            "queued " + queued.get() + (queueLimit > 0 ? "/" + queueLimit : "") + ", rejected " + rejected.sum(),
+            "queue wait: " + waitTimes,
+            "run time: " + runTimes
+        );
+    }
+    
+    /**
+     * Stop accepting tasks, then wait for every queued task to run
+     * @return false if tasks were still queued when the timeout ran out
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) {
+        shutdown = true;
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        
+        try {
+            synchronized (idleLock) {
+                long remaining;
+                while (queued.get() > 0 && (remaining = deadline - System.nanoTime()) > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(idleLock, remaining);
+                }
+            }
+            pool.shutdown();
+            return pool.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS) && queued.get() == 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    /**
+     * Take a place in the queue, waiting for one if the caller may block
+     */
+    private void reserve() {
+        if (capacity == null || capacity.tryAcquire()) {
+            return;
+        }
+        
+        try {
+            if (blockTimeoutMillis > 0 && mayBlock.getAsBoolean() && capacity.tryAcquire(blockTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejected.increment();
+        throw new RejectedExecutionException("Storage queue is full (" + queueLimit + " tasks)");
+    }
+    
+    private void run(Task task) {
+        if (task.bounded) {
+            capacity.release();
+        }
+        waitTimes.record(task.queuedAt);
+        
+        long start = System.nanoTime();
+        try {
+            task.runnable.run();
+        } catch (Throwable e) {
+            logger.severe("Storage task failed: " + e);
+        } finally {
+            runTimes.record(start);
+            if (queued.decrementAndGet() == 0) {
+                synchronized (idleLock) {
+                    idleLock.notifyAll();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Runs its tasks one at a time in submission order, on whichever pool thread is free.
+     * After each task the lane goes to the back of the pool's queue, so one busy store
+     * cannot hold on to a thread while others wait.
+     */
+    public final class Lane implements Executor {
+        private final Queue<Task> tasks = new ArrayDeque<>();
+        private boolean scheduled;
+        
+        private Lane() {
+        }
+        
+        /**
+         * Queue a task, subject to the queue limit
+         * @throws RejectedExecutionException If the queue is full and the caller may not wait, or the executor is shut down
+         */
+        @Override
+        public void execute(Runnable runnable) {
+            submit(runnable, true);
+        }
+        
+        /**
+         * Queue a task that must not be turned away, such as closing a store
+         */
+        public void executeUnbounded(Runnable runnable) {
+            submit(runnable, false);
+        }
+        
+        private void submit(Runnable runnable, boolean bounded) {
+            if (shutdown) {
+                throw new RejectedExecutionException("Storage executor is shut down");
+            }
+            if (bounded) {
+                reserve();
+            }
+            queued.incrementAndGet();
+            
+            boolean schedule;
+            synchronized (this) {
+                tasks.add(new Task(runnable, bounded && capacity != null));
+                schedule = !scheduled;
+                scheduled = true;
+            }
+            if (schedule) {
+                pool.execute(this::runNext);
+            }
+        }
+        
+        private void runNext() {
+            Task task;
+            synchronized (this) {
+                task = tasks.poll();
+            }
+            run(task);
+            
+            synchronized (this) {
+                if (tasks.isEmpty()) {
+                    scheduled = false;
+                    return;
+                }
+            }
+            pool.execute(this::runNext);
+        }
+    }
+    
+    private static final class Task {
+        private final Runnable runnable;
+        private final boolean bounded;
+        private final long queuedAt;
+        
+        private Task(Runnable runnable, boolean bounded) {
+            this.runnable = runnable;
+            this.bounded = bounded;
+            this.queuedAt = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.crystalpowers.plugin.storage;
+
+import com.crystalpowers.plugin.utils.EncryptionUtil;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.CollectionEndEvent;
+import org.yaml.snakeyaml.events.CollectionStartEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.MappingEndEvent;
+import org.yaml.snakeyaml.events.MappingStartEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.function.BiConsumer;
+
+/**
+ * Reads the players section of playerdata.yml from the SnakeYAML event stream, one player
+ * at a time. Unlike YamlConfiguration it never builds the document tree, so the memory it
+ * needs does not grow with the file - only what the consumer keeps does.
+ * Files encrypted as a whole are decrypted transparently.
+ */
+public final class YamlPlayerDataReader {
+    private static final String PLAYERS_KEY = "players";
+    private static final String CRYSTAL_POWER_KEY = "crystalpower";
+    
+    private YamlPlayerDataReader() {
+    }
+    
+    /**
+     * Stream every player entry to the consumer in file order
+     * @param consumer Receives the UUID string as written in the file and the stored value,
+     *                 or null if the player has no crystal power. Values in a file encrypted
+     *                 as a whole are plain crystal power IDs.
+     * @return Number of player entries read
+     */
+    public static int read(File dataFile, BiConsumer<String, String> consumer) throws IOException {
+        // The default limit of a few MB is far below a large server's playerdata.yml
+        LoaderOptions options = new LoaderOptions();
+        options.setCodePointLimit(Integer.MAX_VALUE);
+        
+        InputStream in = Files.newInputStream(dataFile.toPath());
+        if (EncryptionUtil.isEncryptedStream(dataFile)) {
+            try {
+                in = EncryptionUtil.decryptStream(in);
+            } catch (IOException | RuntimeException e) {
+                in.close();
+                throw e;
+            }
+        }
+        
+        try (Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            Iterator<Event> events = new Yaml(options).parse(reader).iterator();
+            int count = 0;
+            
+            // Skip to the root mapping - an empty file has none
+            Event event = next(events);
+            while (!(event instanceof MappingStartEvent)) {
+                if (!events.hasNext()) {
+                    return 0;
+                }
+                event = events.next();
+            }
+            
+            while (!((event = next(events)) instanceof MappingEndEvent)) {
+                boolean playersSection = isKey(event, PLAYERS_KEY);
+                Event value = next(events);
+                if (!playersSection || !(value instanceof MappingStartEvent)) {
+                    skip(value, events);
+                    continue;
+                }
+                
+                while (!((event = next(events)) instanceof MappingEndEvent)) {
+                    if (!(event instanceof ScalarEvent)) {
+                        throw new IOException("Unexpected " + event + " in players section");
+                    }
+                    consumer.accept(((ScalarEvent) event).getValue(), readCrystalPower(events));
+                    count++;
+                }
+            }
+            return count;
+        } catch (YAMLException e) {
+            throw new IOException("Malformed " + dataFile.getName() + ": " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Read one player's entry and return its crystalpower value
+     */
+    private static String readCrystalPower(Iterator<Event> events) throws IOException {
+        Event value = next(events);
+        if (!(value instanceof MappingStartEvent)) {
+            skip(value, events);
+            return null;
+        }
+        
+        String crystalPowerId = null;
+        Event event;
+        while (!((event = next(events)) instanceof MappingEndEvent)) {
+            boolean crystalPowerKey = isKey(event, CRYSTAL_POWER_KEY);
+            Event fieldValue = next(events);
+            if (crystalPowerKey && fieldValue instanceof ScalarEvent && !isNull((ScalarEvent) fieldValue)) {
+                crystalPowerId = ((ScalarEvent) fieldValue).getValue();
+            } else {
+                skip(fieldValue, events);
+            }
+        }
+        return crystalPowerId;
+    }
+    
+    /**
+     * Skip a value, including everything nested inside it
+     */
+    private static void skip(Event value, Iterator<Event> events) throws IOException {
+        if (value instanceof ScalarEvent || value instanceof AliasEvent) {
+            return;
+        }
+        if (!(value instanceof CollectionStartEvent)) {
+            throw new IOException("Unexpected " + value);
+        }
+        
+        int depth = 1;
+        while (depth > 0) {
+            Event event = next(events);
+            if (event instanceof CollectionStartEvent) {
+                depth++;
+            } else if (event instanceof CollectionEndEvent) {
+                depth--;
+            }
+        }
+    }
+    
+    private static boolean isKey(Event event, String key) {
+        return event instanceof ScalarEvent && key.equals(((ScalarEvent) event).getValue());
+    }
+    
+    private static boolean isNull(ScalarEvent event) {
+        if (!event.getImplicit().canOmitTagInPlainScalar()) {
+            return false;
+        }
+        String value = event.getValue();
+        return value.isEmpty() || value.equals("~") || value.equalsIgnoreCase("null");
+    }
+    
+    private static Event next(Iterator<Event> events) throws IOException {
+        if (!events.hasNext()) {
+            throw new IOException("Unexpected end of file");
+        }
+        return events.next();
+    }
+}
@@ -0,0 +1,426 @@
+package com.crystalpowers.plugin.storage;
+
+import com.crystalpowers.plugin.models.PlayerData;
+import com.crystalpowers.plugin.utils.EncryptionUtil;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+
+/**
+ * Player data kept in playerdata.yml, encrypted when encryption is enabled - either each
+ * value on its own, or the whole file as one AES-GCM stream with encryption.mode: file.
+ * Either kind of file is read whatever the current mode, and rewritten in the current mode
+ * on the next save. Journal entries are always encrypted one by one, since appending to
+ * an authenticated stream is not possible.
+ * With a journal, changes are appended to it and folded into playerdata.yml once it
+ * grows past the compaction threshold; without one the whole file is rewritten on every write.
+ *
+ * The file is read with {@link YamlPlayerDataReader} and written line by line, so no
+ * YAML document tree is ever built. The stored value of every player ever seen is still
+ * kept in memory, since each snapshot rewrites the whole file from it - memory grows with
+ * the number of stored players. Large servers should use the binary or sql store, which
+ * read players on demand.
+ */
+public class YamlPlayerDataStore extends AbstractPlayerDataStore {
+    private final File dataFile;
+    private final PlayerDataJournal journal;
+    private final long journalCompactThreshold;
+    private final ReentrantLock valuesLock;
+    // Whether playerdata.yml is encrypted as a whole. storedValues then holds plain crystal
+    // power IDs; otherwise it holds the values exactly as they are written to disk.
+    private volatile boolean wholeFile;
+    private Map<UUID, String> storedValues;
+    
+    /**
+     * @param executor Executor shared with other stores, or null to give this store a thread of its own
+     */
+    public YamlPlayerDataStore(File dataFile, StorageExecutor executor, Logger logger) {
+        this(dataFile, null, 0, executor, logger);
+    }
+    
+    /**
+     * @param journal Journal to append changes to, or null to rewrite playerdata.yml on every write
+     * @param journalCompactThreshold Journal size in bytes that triggers compaction
+     */
+    public YamlPlayerDataStore(File dataFile, PlayerDataJournal journal, long journalCompactThreshold, StorageExecutor executor, Logger logger) {
+        super("CrystalPowers-YAML", executor, logger);
+        this.dataFile = dataFile;
+        this.journal = journal;
+        this.journalCompactThreshold = journalCompactThreshold;
+        this.valuesLock = new ReentrantLock();
+    }
+    
+    @Override
+    public String getName() {
+        return dataFile.getName();
+    }
+    
+    @Override
+    public boolean exists() {
+        return dataFile.exists();
+    }
+    
+    @Override
+    public boolean isEncrypted() {
+        return true;
+    }
+    
+    @Override
+    protected void openStore() throws IOException {
+        if (!dataFile.exists()) {
+            dataFile.getParentFile().mkdirs();
+            dataFile.createNewFile();
+        }
+        
+        wholeFile = EncryptionUtil.isWholeFileEncryption();
+        boolean fileHasPlainValues = EncryptionUtil.isEncryptedStream(dataFile);
+        
+        Map<UUID, String> values = new HashMap<>();
+        YamlPlayerDataReader.read(dataFile, (uuidString, storedValue) -> {
+            try {
+                values.put(UUID.fromString(uuidString), storedValue);
+            } catch (IllegalArgumentException e) {
+                logger.warning("Invalid UUID in player data, it will be dropped on the next save: " + uuidString);
+            }
+        });
+        
+        // The file was written in the other mode - convert its values to this one
+        if (EncryptionUtil.isInitialized() && wholeFile != fileHasPlainValues) {
+            logger.info("Converting " + dataFile.getName() + " to " + (wholeFile ? "whole-file" : "per-value") + " encryption");
+            Map<UUID, String> converted = wholeFile ? decryptValues(values) : EncryptionUtil.encryptAll(values);
+            values.clear();
+            values.putAll(converted);
+        }
+        
+        // Replay changes made since the last compaction on top of the snapshot
+        if (journal != null) {
+            Map<UUID, String> journaled = new LinkedHashMap<>();
+            int replayed = journal.replay(journaled::put);
+            values.putAll(wholeFile ? decryptValues(journaled) : journaled);
+            logger.info("Replayed " + replayed + " journal entries");
+        }
+        
+        logger.info("Found " + values.size() + " player data entries");
+        
+        valuesLock.lock();
+        try {
+            storedValues = values;
+        } finally {
+            valuesLock.unlock();
+        }
+    }
+    
+    /**
+     * Read a single player's stored value from memory. Values encrypted one by one are
+     * decrypted on the store's I/O lane, never on the calling thread, so the lookup queues
+     * behind pending writes. Plain values, including a file encrypted as a whole, complete
+     * immediately.
+     */
+    @Override
+    public CompletableFuture<PlayerData> load(UUID playerId) {
+        if (EncryptionUtil.isInitialized() && !wholeFile) {
+            return submit(() -> readRecord(playerId, true));
+        }
+        return CompletableFuture.completedFuture(readRecord(playerId, false));
+    }
+    
+    /**
+     * @return The player's data, or null if there is no record of them
+     */
+    private PlayerData readRecord(UUID playerId, boolean decrypt) {
+        String storedValue;
+        valuesLock.lock();
+        try {
+            if (storedValues == null || !storedValues.containsKey(playerId)) {
+                return null;
+            }
+            storedValue = storedValues.get(playerId);
+        } finally {
+            valuesLock.unlock();
+        }
+        
+        PlayerData data = new PlayerData(playerId);
+        if (storedValue != null) {
+            data.setCrystalPowerId(decrypt ? EncryptionUtil.decrypt(storedValue) : storedValue);
+            data.markClean();
+        }
+        return data;
+    }
+    
+    /**
+     * Encrypt the records and write them to playerdata.yml, or append them to the journal
+     */
+    @Override
+    protected void writeRecords(Map<UUID, String> records) throws IOException {
+        // Encrypt crystal power IDs one by one if encryption is enabled - only needed for the
+        // journal when the file is encrypted as a whole. A failure fails the whole write,
+        // so the caller keeps the changes and retries them.
+        Map<UUID, String> encrypted = null;
+        if (!wholeFile || journal != null) {
+            encrypted = EncryptionUtil.isInitialized() ? EncryptionUtil.encryptAll(records) : new LinkedHashMap<>(records);
+        }
+        
+        valuesLock.lock();
+        try {
+            storedValues.putAll(wholeFile ? records : encrypted);
+        } finally {
+            valuesLock.unlock();
+        }
+        
+        if (journal == null) {
+            writeSnapshot();
+            return;
+        }
+        
+        journal.append(encrypted);
+        if (journal.size() >= journalCompactThreshold) {
+            compactJournal();
+        }
+    }
+    
+    /**
+     * Decrypt every record, spreading the work across all cores
+     */
+    @Override
+    protected void visitRecords(BiConsumer<UUID, String> consumer) {
+        Map<String, String> rawRecords = new HashMap<>();
+        valuesLock.lock();
+        try {
+            if (storedValues != null && wholeFile) {
+                // Already plain - nothing to decrypt
+                new HashMap<>(storedValues).forEach(consumer);
+                return;
+            }
+            if (storedValues != null) {
+                storedValues.forEach((uuid, storedValue) -> rawRecords.put(uuid.toString(), storedValue));
+            }
+        } finally {
+            valuesLock.unlock();
+        }
+        
+        new ParallelPlayerDataLoader(logger).load(rawRecords).forEach(consumer);
+    }
+    
+    /**
+     * Read the records that follow the given player in UUID order. Only the page is copied
+     * out of memory and decrypted, so the lane is held for one scan of the keys, not for
+     * decrypting every record.
+     */
+    @Override
+    protected RecordPage readRecords(UUID after, int limit) {
+        TreeMap<UUID, String> page = new TreeMap<>();
+        int following = 0;
+        boolean decrypt;
+        valuesLock.lock();
+        try {
+            if (storedValues != null) {
+                for (Map.Entry<UUID, String> entry : storedValues.entrySet()) {
+                    if (after != null && entry.getKey().compareTo(after) <= 0) {
+                        continue;
+                    }
+                    following++;
+                    page.put(entry.getKey(), entry.getValue());
+                    if (page.size() > limit) {
+                        page.pollLastEntry();
+                    }
+                }
+            }
+            decrypt = EncryptionUtil.isInitialized() && !wholeFile;
+        } finally {
+            valuesLock.unlock();
+        }
+        
+        UUID last = page.isEmpty() ? after : page.lastKey();
+        return new RecordPage(decrypt ? decryptValues(page) : new LinkedHashMap<>(page), last, following <= limit);
+    }
+    
+    @Override
+    protected int countRecords() {
+        valuesLock.lock();
+        try {
+            return storedValues != null ? storedValues.size() : 0;
+        } finally {
+            valuesLock.unlock();
+        }
+    }
+    
+    /**
+     * Rotate per-value encrypted records to the current key. They are appended to the journal
+     * if there is one; otherwise they reach playerdata.yml with the next snapshot, and the old
+     * values stay readable until then. A file encrypted as a whole is rewritten by {@link #compact}.
+     */
+    @Override
+    public CompletableFuture<Integer> reencrypt(Collection<UUID> playerIds) {
+        return submit(() -> {
+            if (!EncryptionUtil.isInitialized() || wholeFile) {
+                return 0;
+            }
+            
+            Map<UUID, String> outdated = new LinkedHashMap<>();
+            valuesLock.lock();
+            try {
+                for (UUID playerId : playerIds) {
+                    String storedValue = storedValues.get(playerId);
+                    if (storedValue != null && EncryptionUtil.needsReencryption(storedValue)) {
+                        outdated.put(playerId, storedValue);
+                    }
+                }
+            } finally {
+                valuesLock.unlock();
+            }
+            if (outdated.isEmpty()) {
+                return 0;
+            }
+            
+            // Values that cannot be decrypted are left as they are rather than dropped
+            Map<UUID, String> plain = EncryptionUtil.decryptAll(outdated, (uuid, e) ->
+                logger.warning("Failed to decrypt crystal power for player " + uuid + ", leaving it as is: " + e.getMessage()));
+            Map<UUID, String> rotated = EncryptionUtil.encryptAll(plain);
+            
+            valuesLock.lock();
+            try {
+                storedValues.putAll(rotated);
+            } finally {
+                valuesLock.unlock();
+            }
+            
+            if (journal != null) {
+                journal.append(rotated);
+                if (journal.size() >= journalCompactThreshold) {
+                    compactJournal();
+                }
+            }
+            return rotated.size();
+        });
+    }
+    
+    /**
+     * Write a fresh snapshot with the current key and empty the journal
+     */
+    @Override
+    public CompletableFuture<Void> compact() {
+        return submit(() -> {
+            writeSnapshot();
+            if (journal != null) {
+                journal.truncate();
+            }
+            logger.info("Rewrote " + dataFile.getName() + " with the current encryption key");
+            return null;
+        });
+    }
+    
+    @Override
+    protected void closeStore() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+    
+    /**
+     * Fold the journal into the playerdata.yml snapshot
+     */
+    private void compactJournal() {
+        long journalSize = journal.size();
+        try {
+            writeSnapshot();
+            journal.truncate();
+            logger.info("Compacted " + (journalSize / 1024) + " KB journal into " + dataFile.getName());
+        } catch (IOException e) {
+            // The journal is left intact, so nothing is lost - compaction is retried on the next write
+            logger.warning("Could not compact journal: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Copy the stored values while holding valuesLock, then write them outside the lock
+     * so lookups only wait for the copy. The file is forced to disk and swapped in
+     * atomically, so a crash never leaves a half-written snapshot.
+     */
+    private void writeSnapshot() throws IOException {
+        Map<UUID, String> snapshot;
+        valuesLock.lock();
+        try {
+            snapshot = new HashMap<>(storedValues);
+        } finally {
+            valuesLock.unlock();
+        }
+        
+        File tempFile = new File(dataFile.getParentFile(), dataFile.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tempFile)) {
+            // Closing the writer finishes the GCM stream but must leave the file open for force()
+            OutputStream target = wholeFile ? EncryptionUtil.encryptStream(new CloseShieldOutputStream(out)) : out;
+            Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8));
+            if (snapshot.isEmpty()) {
+                writer.write("players: {}\n");
+            } else {
+                writer.write("players:\n");
+            }
+            
+            for (Map.Entry<UUID, String> entry : snapshot.entrySet()) {
+                writer.write("  ");
+                writer.write(entry.getKey().toString());
+                if (entry.getValue() == null) {
+                    // A cleared power keeps the player's entry, the same as in the other backends
+                    writer.write(": {}\n");
+                } else {
+                    writer.write(":\n    crystalpower: '");
+                    writer.write(entry.getValue().replace("'", "''"));
+                    writer.write("'\n");
+                }
+            }
+            if (wholeFile) {
+                writer.close();
+            } else {
+                writer.flush();
+            }
+            out.getChannel().force(true);
+        }
+        Files.move(tempFile.toPath(), dataFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    /**
+     * Decrypt values that were encrypted one by one. Values that fail to decrypt are dropped.
+     */
+    private Map<UUID, String> decryptValues(Map<UUID, String> values) {
+        return EncryptionUtil.decryptAll(values, (uuid, e) ->
+            logger.warning("Failed to decrypt crystal power for player " + uuid + ", dropping it: " + e.getMessage()));
+    }
+    
+    /**
+     * Flushes instead of closing, so the file stays open after the stream on top of it is closed
+     */
+    private static class CloseShieldOutputStream extends FilterOutputStream {
+        private CloseShieldOutputStream(OutputStream out) {
+            super(out);
+        }
+        
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+        }
+        
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -1,19 +1,42 @@
 package com.crystalpowers.plugin.utils;
 
 import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.CipherOutputStream;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import javax.crypto.spec.IvParameterSpec;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.util.function.BiConsumer;
 import java.util.logging.Logger;
 
 /**
  * Utility class for encrypting and decrypting sensitive data
- * Uses AES-256 encryption with CBC mode and PKCS5 padding
+ * Uses AES-256 encryption with CBC mode and PKCS5 padding for single values,
+ * and AES-256-GCM for whole-file streams
+ *
+ * Keys are versioned. Data is always encrypted with the current key and records the version
+ * it was encrypted with, so after a key rotation data encrypted with any key still in the
+ * keyring stays readable until it has been re-encrypted.
  */
 public class EncryptionUtil {
     private static final String ALGORITHM = "AES";
@@ -21,27 +44,119 @@ public class EncryptionUtil {
     private static final String HASH_ALGORITHM = "SHA-256";
     private static final int KEY_LENGTH = 256;
     private static final int IV_LENGTH = 16;
+    private static final String STREAM_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int STREAM_NONCE_LENGTH = 12;
+    private static final int STREAM_TAG_BITS = 128;
+    // Start of every encrypted stream - plain player data files start with "players"
+    private static final byte[] STREAM_MAGIC = {'C', 'P', 'G', 'C', 'M', 1};
+    // Values encrypted with the first key have no version prefix, the same as before keys were versioned
+    private static final int FIRST_KEY_VERSION = 1;
+    private static final char VERSION_SEPARATOR = ':';
     
     private static final Logger logger = Logger.getLogger(EncryptionUtil.class.getName());
-    private static SecretKey secretKey;
+    private static final Map<Integer, SecretKey> keyring = new ConcurrentHashMap<>();
+    // Replaced as a unit, so a value is never tagged with the version of a different key
+    private static volatile VersionedKey currentKey;
+    private static volatile boolean wholeFileEncryption;
     private static final SecureRandom secureRandom = new SecureRandom();
     
+    // getInstance walks the provider list on every call - keep one instance per thread instead
+    private static final ThreadLocal<Cipher> ciphers = ThreadLocal.withInitial(() -> newInstance(() -> Cipher.getInstance(TRANSFORMATION)));
+    private static final ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(() -> newInstance(() -> MessageDigest.getInstance(HASH_ALGORITHM)));
+    private static final ThreadLocal<byte[]> ivBuffers = ThreadLocal.withInitial(() -> new byte[IV_LENGTH]);
+    
     /**
      * Initialize encryption with a master password
      * @param masterPassword The master password for encryption
      */
     public static void initialize(String masterPassword) {
+        initialize(FIRST_KEY_VERSION, masterPassword);
+    }
+    
+    /**
+     * Initialize encryption with a master password, discarding any other keys
+     * @param keyVersion Version recorded with everything encrypted with this key
+     */
+    public static void initialize(int keyVersion, String masterPassword) {
+        SecretKey key = deriveKey(masterPassword);
+        keyring.clear();
+        keyring.put(keyVersion, key);
+        currentKey = new VersionedKey(keyVersion, key);
+        logger.info("Encryption initialized successfully");
+    }
+    
+    /**
+     * Add an older key to the keyring so data encrypted with it can still be read
+     */
+    public static void addKey(int keyVersion, String masterPassword) {
+        keyring.put(keyVersion, deriveKey(masterPassword));
+    }
+    
+    /**
+     * Make a new key current. Older keys stay in the keyring for reading until {@link #retireOldKeys}.
+     */
+    public static void rotateKey(int keyVersion, String masterPassword) {
+        SecretKey key = deriveKey(masterPassword);
+        keyring.put(keyVersion, key);
+        currentKey = new VersionedKey(keyVersion, key);
+        logger.info("Rotated encryption key to version " + keyVersion);
+    }
+    
+    /**
+     * Drop every key except the current one. Only call this once no data encrypted with them is left.
+     */
+    public static void retireOldKeys() {
+        VersionedKey current = requireKey();
+        keyring.keySet().removeIf(version -> version != current.version);
+    }
+    
+    /**
+     * @return The version of the key new data is encrypted with
+     */
+    public static int getKeyVersion() {
+        return requireKey().version;
+    }
+    
+    /**
+     * @return Versions of every key that can be read with, oldest first
+     */
+    public static List<Integer> getKeyVersions() {
+        List<Integer> versions = new ArrayList<>(keyring.keySet());
+        Collections.sort(versions);
+        return versions;
+    }
+    
+    /**
+     * @return The version of the key a value from {@link #encrypt} was encrypted with
+     */
+    public static int getKeyVersion(String encryptedText) {
+        int separator = encryptedText.indexOf(VERSION_SEPARATOR);
+        if (separator < 0) {
+            return FIRST_KEY_VERSION;
+        }
+        try {
+            return Integer.parseInt(encryptedText.substring(0, separator));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid key version in encrypted data");
+        }
+    }
+    
+    /**
+     * @return true if a value from {@link #encrypt} was encrypted with an older key
+     */
+    public static boolean needsReencryption(String encryptedText) {
+        return getKeyVersion(encryptedText) != requireKey().version;
+    }
+    
+    private static SecretKey deriveKey(String masterPassword) {
         try {
             // Generate key from password using SHA-256
-            MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
-            byte[] keyBytes = digest.digest(masterPassword.getBytes(StandardCharsets.UTF_8));
+            byte[] keyBytes = digests.get().digest(masterPassword.getBytes(StandardCharsets.UTF_8));
             
             // Use first 32 bytes for AES-256
             byte[] aesKey = new byte[32];
             System.arraycopy(keyBytes, 0, aesKey, 0, Math.min(keyBytes.length, 32));
-            
-            secretKey = new SecretKeySpec(aesKey, ALGORITHM);
-            logger.info("Encryption initialized successfully");
+            return new SecretKeySpec(aesKey, ALGORITHM);
             
         } catch (Exception e) {
             logger.severe("Failed to initialize encryption: " + e.getMessage());
@@ -71,32 +186,38 @@ public class EncryptionUtil {
      * @return Base64 encoded encrypted text with IV prepended
      */
     public static String encrypt(String plaintext) {
-        if (secretKey == null) {
-            throw new IllegalStateException("Encryption not initialized. Call initialize() first.");
+        VersionedKey key = requireKey();
+        
+        try {
+            return encrypt(ciphers.get(), key, ivBuffers.get(), Base64.getEncoder(), plaintext);
+        } catch (Exception e) {
+            logger.severe("Encryption failed: " + e.getMessage());
+            throw new RuntimeException("Encryption failed", e);
         }
+    }
+    
+    /**
+     * Encrypt every value of a map, reusing one cipher for the whole batch.
+     * Null values are copied through unencrypted.
+     * @return The encrypted values in the same key order
+     */
+    public static <K> Map<K, String> encryptAll(Map<K, String> plaintexts) {
+        VersionedKey key = requireKey();
+        Cipher cipher = ciphers.get();
+        byte[] iv = ivBuffers.get();
+        Base64.Encoder encoder = Base64.getEncoder();
+        Map<K, String> encrypted = new LinkedHashMap<>((int) (plaintexts.size() / 0.75f) + 1);
         
         try {
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            
-            // Generate random IV
-            byte[] iv = new byte[IV_LENGTH];
-            secureRandom.nextBytes(iv);
-            IvParameterSpec ivSpec = new IvParameterSpec(iv);
-            
-            cipher.init(Cipher.ENCRYPT_MODE, secretKey, ivSpec);
-            byte[] encryptedData = cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
-            
-            // Combine IV and encrypted data
-            byte[] combined = new byte[IV_LENGTH + encryptedData.length];
-            System.arraycopy(iv, 0, combined, 0, IV_LENGTH);
-            System.arraycopy(encryptedData, 0, combined, IV_LENGTH, encryptedData.length);
-            
-            return Base64.getEncoder().encodeToString(combined);
-            
+            for (Map.Entry<K, String> entry : plaintexts.entrySet()) {
+                String plaintext = entry.getValue();
+                encrypted.put(entry.getKey(), plaintext != null ? encrypt(cipher, key, iv, encoder, plaintext) : null);
+            }
         } catch (Exception e) {
             logger.severe("Encryption failed: " + e.getMessage());
             throw new RuntimeException("Encryption failed", e);
         }
+        return encrypted;
     }
     
     /**
@@ -105,37 +226,190 @@ public class EncryptionUtil {
      * @return Decrypted plaintext
      */
     public static String decrypt(String encryptedText) {
-        if (secretKey == null) {
-            throw new IllegalStateException("Encryption not initialized. Call initialize() first.");
-        }
+        requireKey();
         
         try {
-            byte[] combined = Base64.getDecoder().decode(encryptedText);
-            
-            if (combined.length < IV_LENGTH) {
-                throw new IllegalArgumentException("Invalid encrypted data format");
-            }
-            
-            // Extract IV and encrypted data
-            byte[] iv = new byte[IV_LENGTH];
-            byte[] encryptedData = new byte[combined.length - IV_LENGTH];
-            
-            System.arraycopy(combined, 0, iv, 0, IV_LENGTH);
-            System.arraycopy(combined, IV_LENGTH, encryptedData, 0, encryptedData.length);
-            
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            IvParameterSpec ivSpec = new IvParameterSpec(iv);
-            cipher.init(Cipher.DECRYPT_MODE, secretKey, ivSpec);
-            
-            byte[] decryptedData = cipher.doFinal(encryptedData);
-            return new String(decryptedData, StandardCharsets.UTF_8);
-            
+            return decrypt(ciphers.get(), Base64.getDecoder(), encryptedText);
         } catch (Exception e) {
             logger.severe("Decryption failed: " + e.getMessage());
             throw new RuntimeException("Decryption failed", e);
         }
     }
     
+    /**
+     * Decrypt every value of a map, reusing one cipher for the whole batch.
+     * Null values are copied through. Values that fail to decrypt are left out of the
+     * result and reported to onFailure instead of failing the batch.
+     * @return The decrypted values in the same key order
+     */
+    public static <K> Map<K, String> decryptAll(Map<K, String> encryptedTexts, BiConsumer<K, Exception> onFailure) {
+        requireKey();
+        Cipher cipher = ciphers.get();
+        Base64.Decoder decoder = Base64.getDecoder();
+        Map<K, String> decrypted = new LinkedHashMap<>((int) (encryptedTexts.size() / 0.75f) + 1);
+        
+        for (Map.Entry<K, String> entry : encryptedTexts.entrySet()) {
+            String encryptedText = entry.getValue();
+            if (encryptedText == null) {
+                decrypted.put(entry.getKey(), null);
+                continue;
+            }
+            
+            try {
+                decrypted.put(entry.getKey(), decrypt(cipher, decoder, encryptedText));
+            } catch (Exception e) {
+                onFailure.accept(entry.getKey(), e);
+            }
+        }
+        return decrypted;
+    }
+    
+    /**
+     * Choose how stores that support it encrypt player data: the whole file as one
+     * authenticated stream, or each value on its own
+     */
+    public static void setWholeFileEncryption(boolean enabled) {
+        wholeFileEncryption = enabled;
+    }
+    
+    /**
+     * @return true if encryption is initialized and files should be encrypted as a whole
+     */
+    public static boolean isWholeFileEncryption() {
+        return wholeFileEncryption && currentKey != null;
+    }
+    
+    /**
+     * Start an AES-GCM stream. A header with the key version and a fresh random nonce is
+     * written to out first. Closing the returned stream writes the authentication tag and closes out.
+     */
+    public static OutputStream encryptStream(OutputStream out) throws IOException {
+        VersionedKey key = requireKey();
+        byte[] header = streamHeader(key.version);
+        byte[] nonce = new byte[STREAM_NONCE_LENGTH];
+        secureRandom.nextBytes(nonce);
+        
+        Cipher cipher;
+        try {
+            cipher = Cipher.getInstance(STREAM_TRANSFORMATION);
+            cipher.init(Cipher.ENCRYPT_MODE, key.key, new GCMParameterSpec(STREAM_TAG_BITS, nonce));
+            cipher.updateAAD(header);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Could not start encrypted stream", e);
+        }
+        
+        out.write(header);
+        out.write(nonce);
+        return new CipherOutputStream(out, cipher);
+    }
+    
+    /**
+     * Read a stream written by {@link #encryptStream}. GCM releases no plaintext until the
+     * authentication tag has been checked, so the whole stream is buffered by the cipher and
+     * a modified or truncated stream fails with an IOException before anything is returned.
+     */
+    public static InputStream decryptStream(InputStream in) throws IOException {
+        requireKey();
+        byte[] header = in.readNBytes(STREAM_MAGIC.length + Integer.BYTES);
+        if (header.length < STREAM_MAGIC.length || !Arrays.equals(Arrays.copyOf(header, STREAM_MAGIC.length), STREAM_MAGIC)) {
+            throw new IOException("Not an encrypted stream");
+        }
+        byte[] nonce = in.readNBytes(STREAM_NONCE_LENGTH);
+        if (header.length < STREAM_MAGIC.length + Integer.BYTES || nonce.length < STREAM_NONCE_LENGTH) {
+            throw new IOException("Truncated encrypted stream header");
+        }
+        int keyVersion = ByteBuffer.wrap(header, STREAM_MAGIC.length, Integer.BYTES).getInt();
+        
+        try {
+            Cipher cipher = Cipher.getInstance(STREAM_TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, keyFor(keyVersion), new GCMParameterSpec(STREAM_TAG_BITS, nonce));
+            cipher.updateAAD(header);
+            return new CipherInputStream(in, cipher);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Could not start decrypting stream", e);
+        }
+    }
+    
+    /**
+     * @return The version of the key a file written through {@link #encryptStream} was encrypted with
+     */
+    public static int getKeyVersion(File file) throws IOException {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            byte[] header = in.readNBytes(STREAM_MAGIC.length + Integer.BYTES);
+            if (header.length < STREAM_MAGIC.length + Integer.BYTES) {
+                throw new IOException("Not an encrypted stream");
+            }
+            return ByteBuffer.wrap(header, STREAM_MAGIC.length, Integer.BYTES).getInt();
+        }
+    }
+    
+    private static byte[] streamHeader(int keyVersion) {
+        return ByteBuffer.allocate(STREAM_MAGIC.length + Integer.BYTES).put(STREAM_MAGIC).putInt(keyVersion).array();
+    }
+    
+    /**
+     * Whether a file was written through {@link #encryptStream}. Works without a key.
+     */
+    public static boolean isEncryptedStream(File file) throws IOException {
+        if (!file.exists()) {
+            return false;
+        }
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            return Arrays.equals(in.readNBytes(STREAM_MAGIC.length), STREAM_MAGIC);
+        }
+    }
+    
+    private static String encrypt(Cipher cipher, VersionedKey key, byte[] iv, Base64.Encoder encoder, String plaintext) throws GeneralSecurityException {
+        // Generate random IV
+        secureRandom.nextBytes(iv);
+        cipher.init(Cipher.ENCRYPT_MODE, key.key, new IvParameterSpec(iv));
+        byte[] input = plaintext.getBytes(StandardCharsets.UTF_8);
+        
+        // Write the IV and the encrypted data straight into one buffer
+        byte[] combined = new byte[IV_LENGTH + cipher.getOutputSize(input.length)];
+        System.arraycopy(iv, 0, combined, 0, IV_LENGTH);
+        int length = IV_LENGTH + cipher.doFinal(input, 0, input.length, combined, IV_LENGTH);
+        
+        if (length < combined.length) {
+            byte[] trimmed = new byte[length];
+            System.arraycopy(combined, 0, trimmed, 0, length);
+            combined = trimmed;
+        }
+        String encoded = encoder.encodeToString(combined);
+        return key.version == FIRST_KEY_VERSION ? encoded : key.version + String.valueOf(VERSION_SEPARATOR) + encoded;
+    }
+    
+    private static String decrypt(Cipher cipher, Base64.Decoder decoder, String encryptedText) throws GeneralSecurityException {
+        int separator = encryptedText.indexOf(VERSION_SEPARATOR);
+        SecretKey key = keyFor(getKeyVersion(encryptedText));
+        byte[] combined = decoder.decode(separator < 0 ? encryptedText : encryptedText.substring(separator + 1));
+        
+        if (combined.length < IV_LENGTH) {
+            throw new IllegalArgumentException("Invalid encrypted data format");
+        }
+        
+        // Read the IV and the encrypted data in place instead of copying them out
+        cipher.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(combined, 0, IV_LENGTH));
+        byte[] decryptedData = cipher.doFinal(combined, IV_LENGTH, combined.length - IV_LENGTH);
+        return new String(decryptedData, StandardCharsets.UTF_8);
+    }
+    
+    private static VersionedKey requireKey() {
+        VersionedKey key = currentKey;
+        if (key == null) {
+            throw new IllegalStateException("Encryption not initialized. Call initialize() first.");
+        }
+        return key;
+    }
+    
+    private static SecretKey keyFor(int keyVersion) {
+        SecretKey key = keyring.get(keyVersion);
+        if (key == null) {
+            throw new IllegalStateException("No encryption key with version " + keyVersion + " - was it retired before the data was re-encrypted?");
+        }
+        return key;
+    }
+    
     /**
      * Create a secure hash of a string (for passwords, tokens, etc.)
      * @param input The string to hash
@@ -143,8 +417,7 @@ public class EncryptionUtil {
      */
     public static String createHash(String input) {
         try {
-            MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
-            byte[] hashBytes = digest.digest(input.getBytes(StandardCharsets.UTF_8));
+            byte[] hashBytes = digests.get().digest(input.getBytes(StandardCharsets.UTF_8));
             return Base64.getEncoder().encodeToString(hashBytes);
         } catch (Exception e) {
             logger.severe("Hashing failed: " + e.getMessage());
@@ -187,6 +460,28 @@ public class EncryptionUtil {
      * @return true if encryption is ready to use
      */
     public static boolean isInitialized() {
-        return secretKey != null;
+        return currentKey != null;
+    }
+    
+    private static <T> T newInstance(CryptoFactory<T> factory) {
+        try {
+            return factory.create();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Crypto algorithm not available", e);
+        }
+    }
+    
+    private static final class VersionedKey {
+        private final int version;
+        private final SecretKey key;
+        
+        private VersionedKey(int version, SecretKey key) {
+            this.version = version;
+            this.key = key;
+        }
+    }
+    
+    private interface CryptoFactory<T> {
+        T create() throws GeneralSecurityException;
     }
 }
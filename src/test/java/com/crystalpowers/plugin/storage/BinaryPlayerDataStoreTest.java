@@ -0,0 +1,11 @@
+package com.crystalpowers.plugin.storage;
+
+import java.io.File;
+
+class BinaryPlayerDataStoreTest extends PlayerDataStoreConformanceTest {
+    
+    @Override
+    protected PlayerDataStore createStore(File dataFolder) {
+        return new BinaryPlayerDataStore(new File(dataFolder, "playerdata.bin"), null, LOGGER);
+    }
+}
@@ -0,0 +1,14 @@
+package com.crystalpowers.plugin.storage;
+
+import java.io.File;
+
+class JournalPlayerDataStoreTest extends PlayerDataStoreConformanceTest {
+    // Small enough that the batch tests also run a compaction
+    private static final long COMPACT_THRESHOLD = 4 * 1024;
+    
+    @Override
+    protected PlayerDataStore createStore(File dataFolder) {
+        return new YamlPlayerDataStore(new File(dataFolder, "playerdata.yml"),
+            new PlayerDataJournal(new File(dataFolder, "playerdata.journal"), LOGGER), COMPACT_THRESHOLD, null, LOGGER);
+    }
+}
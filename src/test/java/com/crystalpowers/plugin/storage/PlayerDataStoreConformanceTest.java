@@ -0,0 +1,206 @@
+package com.crystalpowers.plugin.storage;
+
+import com.crystalpowers.plugin.models.PlayerData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The contract of {@link PlayerDataStore} that every backend must meet. Each backend
+ * has a subclass that creates it over a fresh temporary folder.
+ */
+public abstract class PlayerDataStoreConformanceTest {
+    protected static final Logger LOGGER = Logger.getLogger(PlayerDataStoreConformanceTest.class.getName());
+    private static final long TIMEOUT_SECONDS = 30;
+    private static final int BATCH_SIZE = 200;
+    private static final String[] POWERS = {"human", "avian", "enderian", "arachnid", "merling", "phantom"};
+    
+    @TempDir
+    File dataFolder;
+    
+    private PlayerDataStore store;
+    
+    /**
+     * Create the backend under test over the given folder. Called again on the same
+     * folder to check that records survive a close and reopen.
+     */
+    protected abstract PlayerDataStore createStore(File dataFolder);
+    
+    @BeforeEach
+    void openStore() {
+        store = createStore(dataFolder);
+        await(store.open());
+    }
+    
+    @AfterEach
+    void closeStore() {
+        if (store != null) {
+            store.close(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+    
+    @Test
+    void existsOnceOpened() {
+        assertTrue(store.exists());
+    }
+    
+    @Test
+    void unknownPlayerLoadsAsNull() {
+        assertNull(await(store.load(UUID.randomUUID())));
+    }
+    
+    @Test
+    void loadsSavedPower() {
+        UUID playerId = UUID.randomUUID();
+        await(store.save(playerId, "avian"));
+        
+        assertRecord(playerId, "avian");
+    }
+    
+    @Test
+    void overwritesAndClearsPower() {
+        UUID playerId = UUID.randomUUID();
+        await(store.save(playerId, "avian"));
+        await(store.save(playerId, "merling"));
+        assertRecord(playerId, "merling");
+        
+        await(store.save(playerId, null));
+        assertRecord(playerId, null);
+    }
+    
+    @Test
+    void appliesWritesInSubmissionOrder() {
+        UUID playerId = UUID.randomUUID();
+        store.save(playerId, "human");
+        store.save(playerId, "enderian");
+        await(store.save(playerId, "arachnid"));
+        
+        assertRecord(playerId, "arachnid");
+    }
+    
+    @Test
+    void savesBatchesAndLaterChanges() {
+        Map<UUID, String> expected = saveBatch();
+        
+        // Change part of the batch, including clearing a power and selecting one again
+        Map<UUID, String> changes = new HashMap<>();
+        int index = 0;
+        for (Map.Entry<UUID, String> entry : expected.entrySet()) {
+            if (index++ % 7 == 0) {
+                changes.put(entry.getKey(), entry.getValue() == null ? "phantom" : null);
+            }
+        }
+        await(store.saveAll(changes));
+        expected.putAll(changes);
+        
+        expected.forEach(this::assertRecord);
+    }
+    
+    @Test
+    void findsPlayersByPower() {
+        Map<UUID, String> expected = saveBatch();
+        
+        for (String crystalPowerId : POWERS) {
+            Set<UUID> expectedIds = new HashSet<>();
+            expected.forEach((playerId, storedPowerId) -> {
+                if (crystalPowerId.equals(storedPowerId)) {
+                    expectedIds.add(playerId);
+                }
+            });
+            
+            List<UUID> found = await(store.findPlayersWithPower(crystalPowerId));
+            assertEquals(expectedIds.size(), found.size(), "players found with " + crystalPowerId);
+            assertEquals(expectedIds, new HashSet<>(found), "players found with " + crystalPowerId);
+        }
+    }
+    
+    @Test
+    void visitsEveryRecord() {
+        Map<UUID, String> expected = saveBatch();
+        
+        Map<UUID, String> visited = new HashMap<>();
+        await(store.forEach(visited::put));
+        assertEquals(expected, visited);
+    }
+    
+    @Test
+    void readsEveryRecordPageByPage() {
+        Map<UUID, String> expected = saveBatch();
+        
+        Map<UUID, String> read = new HashMap<>();
+        UUID after = null;
+        RecordPage page;
+        int pages = 0;
+        do {
+            page = await(store.readPage(after, 30));
+            assertTrue(page.getRecords().size() <= 30, "page larger than the limit");
+            for (Map.Entry<UUID, String> entry : page.getRecords().entrySet()) {
+                assertFalse(read.containsKey(entry.getKey()), "record read twice");
+                read.put(entry.getKey(), entry.getValue());
+            }
+            after = page.getLast();
+            assertTrue(++pages <= BATCH_SIZE, "paging does not end");
+        } while (!page.isEnd());
+        
+        assertEquals(expected, read);
+    }
+    
+    @Test
+    void countsRecords() {
+        assertEquals(0, await(store.count()));
+        Map<UUID, String> expected = saveBatch();
+        assertEquals(expected.size(), await(store.count()));
+    }
+    
+    @Test
+    void keepsRecordsAcrossReopen() {
+        Map<UUID, String> expected = saveBatch();
+        store.close(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        store = null;
+        
+        store = createStore(dataFolder);
+        assertTrue(store.exists(), "exists() for a store that was written and closed");
+        await(store.open());
+        expected.forEach(this::assertRecord);
+    }
+    
+    private Map<UUID, String> saveBatch() {
+        Map<UUID, String> batch = new HashMap<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.put(UUID.randomUUID(), i % 10 == 0 ? null : POWERS[i % POWERS.length]);
+        }
+        await(store.saveAll(batch));
+        return batch;
+    }
+    
+    private void assertRecord(UUID playerId, String crystalPowerId) {
+        PlayerData data = await(store.load(playerId));
+        assertNotNull(data, "record of a stored player");
+        assertEquals(playerId, data.getPlayerId());
+        assertEquals(crystalPowerId, data.getCrystalPowerId());
+        assertEquals(crystalPowerId != null, data.hasSelectedCrystalPower());
+        assertFalse(data.isDirty(), "loaded data is dirty");
+    }
+    
+    private static <T> T await(CompletableFuture<T> future) {
+        return future.orTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS).join();
+    }
+}
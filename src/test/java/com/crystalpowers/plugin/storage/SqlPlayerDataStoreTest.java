@@ -0,0 +1,11 @@
+package com.crystalpowers.plugin.storage;
+
+import java.io.File;
+
+class SqlPlayerDataStoreTest extends PlayerDataStoreConformanceTest {
+    
+    @Override
+    protected PlayerDataStore createStore(File dataFolder) {
+        return new SqlPlayerDataStore(new File(dataFolder, "playerdata.db"), null, LOGGER);
+    }
+}
@@ -0,0 +1,11 @@
+package com.crystalpowers.plugin.storage;
+
+import java.io.File;
+
+class YamlPlayerDataStoreTest extends PlayerDataStoreConformanceTest {
+    
+    @Override
+    protected PlayerDataStore createStore(File dataFolder) {
+        return new YamlPlayerDataStore(new File(dataFolder, "playerdata.yml"), null, LOGGER);
+    }
+}